@@ -0,0 +1,18 @@
+package com.telefonica.nestedscrollwebview.benchmark
+
+import java.io.File
+
+/**
+ * Appends benchmark results to the report file set by the `benchmark.reportFile` system
+ * property, or drops them if it is not set.
+ */
+internal object BenchmarkReport {
+
+    private const val REPORT_FILE_PROPERTY = "benchmark.reportFile"
+
+    fun append(line: String) {
+        val reportFile = System.getProperty(REPORT_FILE_PROPERTY)?.let(::File) ?: return
+        reportFile.parentFile?.mkdirs()
+        reportFile.appendText(line + System.lineSeparator())
+    }
+}
@@ -0,0 +1,89 @@
+package com.telefonica.nestedscrollwebview.benchmark
+
+import android.content.Context
+import android.view.MotionEvent
+import androidx.core.view.ViewCompat
+import com.telefonica.nestedscrollwebview.NestedScrollWebView
+import java.lang.management.ManagementFactory
+
+/**
+ * [NestedScrollWebView] measuring CPU time and allocations of each touch event, and counting
+ * nested pre scroll dispatches, layout requests and animation invalidations.
+ */
+internal class CountingNestedScrollWebView(context: Context) : NestedScrollWebView(context) {
+
+    private val threadMXBean =
+        ManagementFactory.getThreadMXBean() as com.sun.management.ThreadMXBean
+
+    var touchEventCount = 0
+        private set
+    var moveEventCount = 0
+        private set
+    var touchCpuTimeNanos = 0L
+        private set
+    var maxTouchCpuTimeNanos = 0L
+        private set
+    var touchAllocatedBytes = 0L
+        private set
+    var touchNestedPreScrollCount = 0
+        private set
+    var nonTouchNestedPreScrollCount = 0
+        private set
+    var requestLayoutCount = 0
+        private set
+    var postInvalidateOnAnimationCount = 0
+        private set
+
+    fun resetCounters() {
+        touchEventCount = 0
+        moveEventCount = 0
+        touchCpuTimeNanos = 0L
+        maxTouchCpuTimeNanos = 0L
+        touchAllocatedBytes = 0L
+        touchNestedPreScrollCount = 0
+        nonTouchNestedPreScrollCount = 0
+        requestLayoutCount = 0
+        postInvalidateOnAnimationCount = 0
+    }
+
+    override fun onTouchEvent(event: MotionEvent): Boolean {
+        val threadId = Thread.currentThread().id
+        val allocatedBefore = threadMXBean.getThreadAllocatedBytes(threadId)
+        val cpuTimeBefore = threadMXBean.currentThreadCpuTime
+        val handled = super.onTouchEvent(event)
+        val cpuTime = threadMXBean.currentThreadCpuTime - cpuTimeBefore
+        touchAllocatedBytes += threadMXBean.getThreadAllocatedBytes(threadId) - allocatedBefore
+        touchCpuTimeNanos += cpuTime
+        maxTouchCpuTimeNanos = maxOf(maxTouchCpuTimeNanos, cpuTime)
+        touchEventCount++
+        if (event.actionMasked == MotionEvent.ACTION_MOVE) {
+            moveEventCount++
+        }
+        return handled
+    }
+
+    override fun dispatchNestedPreScroll(
+        dx: Int,
+        dy: Int,
+        consumed: IntArray?,
+        offsetInWindow: IntArray?,
+        type: Int,
+    ): Boolean {
+        if (type == ViewCompat.TYPE_TOUCH) {
+            touchNestedPreScrollCount++
+        } else {
+            nonTouchNestedPreScrollCount++
+        }
+        return super.dispatchNestedPreScroll(dx, dy, consumed, offsetInWindow, type)
+    }
+
+    override fun requestLayout() {
+        requestLayoutCount++
+        super.requestLayout()
+    }
+
+    override fun postInvalidateOnAnimation() {
+        postInvalidateOnAnimationCount++
+        super.postInvalidateOnAnimation()
+    }
+}
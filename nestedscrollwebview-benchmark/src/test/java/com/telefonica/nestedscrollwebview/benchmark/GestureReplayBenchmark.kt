@@ -0,0 +1,133 @@
+package com.telefonica.nestedscrollwebview.benchmark
+
+import android.app.Activity
+import android.os.Looper
+import android.view.ContextThemeWrapper
+import android.view.View
+import android.view.ViewGroup
+import androidx.coordinatorlayout.widget.CoordinatorLayout
+import com.google.android.material.appbar.AppBarLayout
+import com.telefonica.nestedscrollwebview.helper.BottomMatchingMode
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertTrue
+import org.junit.Before
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.robolectric.ParameterizedRobolectricTestRunner
+import org.robolectric.Robolectric
+import org.robolectric.Shadows.shadowOf
+import java.time.Duration
+
+/**
+ * Replays motion traces into a [CountingNestedScrollWebView] hosted in a [CoordinatorLayout]
+ * below a collapsing [AppBarLayout], once per trace and bottom matching mode, reporting the cost
+ * of touch events and the work they trigger on nested scrolling parents.
+ *
+ * Run with `./gradlew :nestedscrollwebview-benchmark:testDebugUnitTest`.
+ * Reports are written to `build/reports/benchmark/testDebugUnitTest.txt`.
+ */
+@RunWith(ParameterizedRobolectricTestRunner::class)
+class GestureReplayBenchmark(
+    private val traceName: String,
+    private val trace: ByteArray,
+    private val bottomMatchingMode: BottomMatchingMode?,
+) {
+
+    private lateinit var webView: CountingNestedScrollWebView
+
+    @Before
+    fun setUp() {
+        val activity = Robolectric.buildActivity(Activity::class.java).setup().get()
+        val context = ContextThemeWrapper(
+            activity,
+            com.google.android.material.R.style.Theme_MaterialComponents_Light_NoActionBar,
+        )
+        val appBarLayout = AppBarLayout(context).apply {
+            addView(
+                View(context),
+                AppBarLayout.LayoutParams(ViewGroup.LayoutParams.MATCH_PARENT, APP_BAR_HEIGHT).apply {
+                    scrollFlags = AppBarLayout.LayoutParams.SCROLL_FLAG_SCROLL or
+                        AppBarLayout.LayoutParams.SCROLL_FLAG_ENTER_ALWAYS
+                },
+            )
+        }
+        webView = CountingNestedScrollWebView(context).apply {
+            if (bottomMatchingMode != null) {
+                setCoordinatorBottomMatchingBehaviourEnabled(true)
+                setCoordinatorBottomMatchingMode(bottomMatchingMode)
+            }
+        }
+        val coordinatorLayout = CoordinatorLayout(context).apply {
+            addView(
+                appBarLayout,
+                CoordinatorLayout.LayoutParams(
+                    ViewGroup.LayoutParams.MATCH_PARENT,
+                    ViewGroup.LayoutParams.WRAP_CONTENT,
+                ),
+            )
+            addView(
+                webView,
+                CoordinatorLayout.LayoutParams(
+                    ViewGroup.LayoutParams.MATCH_PARENT,
+                    ViewGroup.LayoutParams.MATCH_PARENT,
+                ).apply {
+                    behavior = AppBarLayout.ScrollingViewBehavior()
+                },
+            )
+        }
+        activity.setContentView(coordinatorLayout)
+        shadowOf(Looper.getMainLooper()).idle()
+        webView.resetCounters()
+    }
+
+    @Test
+    fun replay() {
+        webView.replayMotionTrace(trace)
+        shadowOf(Looper.getMainLooper()).idleFor(Duration.ofMillis(REPLAY_MILLIS))
+
+        report()
+        assertTrue("Trace $traceName dispatched no touch events", webView.touchEventCount > 0)
+        // Batched moves are dispatched to nested scrolling parents at once.
+        assertTrue(
+            "Touch nested pre scrolls exceed move events",
+            webView.touchNestedPreScrollCount <= webView.moveEventCount,
+        )
+        if (bottomMatchingMode == null) {
+            assertEquals(
+                "Layout requested with bottom matching disabled",
+                0,
+                webView.requestLayoutCount,
+            )
+        }
+    }
+
+    private fun report() {
+        val eventCount = maxOf(1, webView.touchEventCount)
+        BenchmarkReport.append(
+            "$traceName [${bottomMatchingMode ?: "no bottom matching"}]: " +
+                "touch events=${webView.touchEventCount}, " +
+                "cpu/event=${webView.touchCpuTimeNanos / eventCount / NANOS_PER_MICRO}us, " +
+                "max cpu/event=${webView.maxTouchCpuTimeNanos / NANOS_PER_MICRO}us, " +
+                "allocated/event=${webView.touchAllocatedBytes / eventCount}B, " +
+                "dispatchNestedPreScroll=${webView.touchNestedPreScrollCount} touch + " +
+                "${webView.nonTouchNestedPreScrollCount} non touch, " +
+                "requestLayout=${webView.requestLayoutCount}, " +
+                "postInvalidateOnAnimation=${webView.postInvalidateOnAnimationCount}",
+        )
+    }
+
+    companion object {
+        private const val APP_BAR_HEIGHT = 300
+        private const val REPLAY_MILLIS = 5000L
+        private const val NANOS_PER_MICRO = 1000L
+
+        @JvmStatic
+        @ParameterizedRobolectricTestRunner.Parameters(name = "{0} [{2}]")
+        fun parameters(): List<Array<Any?>> {
+            val modes = listOf(null) + BottomMatchingMode.values()
+            return GestureTraces.all().flatMap { (name, trace) ->
+                modes.map { mode -> arrayOf<Any?>(name, trace, mode) }
+            }
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package com.telefonica.nestedscrollwebview.benchmark
+
+import android.view.MotionEvent
+import com.telefonica.nestedscrollwebview.helper.MotionTraceRecorder
+import java.io.File
+
+/**
+ * Motion traces replayed by the benchmark, in [MotionTraceRecorder] format.
+ *
+ * Besides built-in synthetic gestures, traces recorded on devices through
+ * `NestedScrollWebView.getMotionTrace()` are loaded from `traces/` test resources, one trace per
+ * `.trace` file.
+ */
+internal object GestureTraces {
+
+    private const val TRACES_RESOURCES_DIR = "traces"
+    private const val TRACE_FILE_EXTENSION = "trace"
+    private const val RECORDER_CAPACITY = 1024
+    private const val X = 540f
+    private const val FRAME_MILLIS = 8L
+
+    fun all(): Map<String, ByteArray> =
+        synthetic() + recorded()
+
+    private fun synthetic(): Map<String, ByteArray> = mapOf(
+        "slow drag up" to record {
+            swipe(fromY = 1500f, toY = 500f, durationMillis = 1000L)
+        },
+        "fling up" to record {
+            swipe(fromY = 1500f, toY = 700f, durationMillis = 96L)
+        },
+        "drag up and down" to record {
+            swipe(fromY = 1500f, toY = 700f, durationMillis = 500L, up = false)
+            swipe(fromY = 700f, toY = 1500f, durationMillis = 500L, down = false)
+        },
+        "fling up then down" to record {
+            swipe(fromY = 1500f, toY = 700f, durationMillis = 96L)
+            pause(durationMillis = 400L)
+            swipe(fromY = 700f, toY = 1500f, durationMillis = 96L)
+        },
+    )
+
+    private fun recorded(): Map<String, ByteArray> {
+        val directory = javaClass.classLoader?.getResource(TRACES_RESOURCES_DIR)
+            ?.let { File(it.toURI()) }
+            ?: return emptyMap()
+        return directory.listFiles { file -> file.extension == TRACE_FILE_EXTENSION }
+            .orEmpty()
+            .sortedBy { it.name }
+            .associate { it.nameWithoutExtension to it.readBytes() }
+    }
+
+    private fun record(gesture: GestureBuilder.() -> Unit): ByteArray {
+        val recorder = MotionTraceRecorder(RECORDER_CAPACITY)
+        GestureBuilder(recorder).gesture()
+        return recorder.getTrace()
+    }
+
+    private class GestureBuilder(private val recorder: MotionTraceRecorder) {
+
+        private var time = 0L
+        private var downTime = 0L
+
+        /**
+         * Moves a single pointer from [fromY] to [toY] at constant speed, with a move event per
+         * frame. Pointer is put down before and lifted after, unless told otherwise.
+         */
+        fun swipe(fromY: Float, toY: Float, durationMillis: Long, down: Boolean = true, up: Boolean = true) {
+            if (down) {
+                downTime = time
+                recordEvent(MotionEvent.ACTION_DOWN, fromY)
+            }
+            val steps = maxOf(1L, durationMillis / FRAME_MILLIS)
+            for (step in 1..steps) {
+                time += FRAME_MILLIS
+                recordEvent(MotionEvent.ACTION_MOVE, fromY + (toY - fromY) * step / steps)
+            }
+            if (up) {
+                recordEvent(MotionEvent.ACTION_UP, toY)
+            }
+        }
+
+        fun pause(durationMillis: Long) {
+            time += durationMillis
+        }
+
+        private fun recordEvent(action: Int, y: Float) {
+            val event = MotionEvent.obtain(downTime, time, action, X, y, 0)
+            recorder.recordTouchEvent(event)
+            event.recycle()
+        }
+    }
+}
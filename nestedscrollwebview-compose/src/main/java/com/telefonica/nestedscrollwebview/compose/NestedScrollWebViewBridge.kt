@@ -0,0 +1,239 @@
+package com.telefonica.nestedscrollwebview.compose
+
+import androidx.compose.runtime.Composable
+import androidx.compose.runtime.Stable
+import androidx.compose.runtime.remember
+import androidx.compose.ui.Modifier
+import androidx.compose.ui.geometry.Offset
+import androidx.compose.ui.input.nestedscroll.NestedScrollConnection
+import androidx.compose.ui.input.nestedscroll.NestedScrollDispatcher
+import androidx.compose.ui.input.nestedscroll.NestedScrollSource
+import androidx.compose.ui.input.nestedscroll.nestedScroll
+import androidx.compose.ui.unit.Velocity
+import androidx.core.view.ViewCompat
+import com.telefonica.nestedscrollwebview.NestedScrollWebView
+import com.telefonica.nestedscrollwebview.helper.ExternalNestedScrollDispatcher
+import kotlinx.coroutines.CoroutineScope
+import kotlinx.coroutines.Job
+import kotlinx.coroutines.launch
+import kotlin.math.roundToInt
+
+/**
+ * Dispatches nested scrolling of a [NestedScrollWebView] straight to Compose nested scrolling
+ * parents of the node using [Modifier.nestedScroll] with this bridge, instead of going through
+ * generic view interop.
+ *
+ * View deltas and velocities are converted to Compose conventions, where positive values mean
+ * content moving down. Touch scrolls are dispatched as [NestedScrollSource.UserInput] and fling
+ * frames as [NestedScrollSource.SideEffect]. Once a gesture or its fling ends, parents are
+ * notified through `onPostFling` with the velocity the fling had left, so these can settle or
+ * keep flinging. `onPreFling` is advisory: parents are notified of it, but the view flings by
+ * itself whatever they consume.
+ */
+@Stable
+class NestedScrollWebViewBridge : ExternalNestedScrollDispatcher {
+
+    internal val dispatcher = NestedScrollDispatcher()
+
+    private var webView: NestedScrollWebView? = null
+    private var nestedScrollTypes = 0
+    private var flingVelocity = Velocity.Zero
+    private var remainingFlingVelocity = Velocity.Zero
+    private var isFlingConsumed = false
+    private var preFlingJob: Job? = null
+    private val windowLocation = IntArray(2)
+
+    fun attach(webView: NestedScrollWebView) {
+        detach()
+        this.webView = webView
+        webView.setExternalNestedScrollDispatcher(this)
+    }
+
+    fun detach() {
+        webView?.setExternalNestedScrollDispatcher(null)
+        webView = null
+        nestedScrollTypes = 0
+    }
+
+    override fun startNestedScroll(axes: Int, type: Int): Boolean {
+        if (webView == null) {
+            return false
+        }
+        if (nestedScrollTypes == 0) {
+            flingVelocity = Velocity.Zero
+            remainingFlingVelocity = Velocity.Zero
+            isFlingConsumed = false
+        }
+        nestedScrollTypes = nestedScrollTypes or typeFlag(type)
+        return true
+    }
+
+    override fun stopNestedScroll(type: Int) {
+        if (!hasNestedScrollingParent(type)) {
+            return
+        }
+        nestedScrollTypes = nestedScrollTypes and typeFlag(type).inv()
+        // A gesture followed by a fling only ends once the fling does.
+        if (nestedScrollTypes == 0) {
+            dispatchPostFling()
+        }
+    }
+
+    override fun hasNestedScrollingParent(type: Int): Boolean =
+        (nestedScrollTypes and typeFlag(type)) != 0
+
+    override fun dispatchNestedScroll(
+        dxConsumed: Int,
+        dyConsumed: Int,
+        dxUnconsumed: Int,
+        dyUnconsumed: Int,
+        offsetInWindow: IntArray?,
+        type: Int,
+        consumed: IntArray?,
+    ): Boolean {
+        if (!hasNestedScrollingParent(type)) {
+            return false
+        }
+        startOffsetInWindow(offsetInWindow)
+        val parentConsumed = dispatcher.dispatchPostScroll(
+            consumed = toComposeOffset(dxConsumed, dyConsumed),
+            available = toComposeOffset(dxUnconsumed, dyUnconsumed),
+            source = toComposeSource(type),
+        )
+        if (consumed != null) {
+            consumed[0] += -parentConsumed.x.roundToInt()
+            consumed[1] += -parentConsumed.y.roundToInt()
+        }
+        endOffsetInWindow(offsetInWindow)
+        return true
+    }
+
+    override fun dispatchNestedPreScroll(
+        dx: Int,
+        dy: Int,
+        consumed: IntArray?,
+        offsetInWindow: IntArray?,
+        type: Int,
+    ): Boolean {
+        if (!hasNestedScrollingParent(type) || (dx == 0 && dy == 0)) {
+            return false
+        }
+        startOffsetInWindow(offsetInWindow)
+        val parentConsumed = dispatcher.dispatchPreScroll(
+            available = toComposeOffset(dx, dy),
+            source = toComposeSource(type),
+        )
+        val consumedX = -parentConsumed.x.roundToInt()
+        val consumedY = -parentConsumed.y.roundToInt()
+        if (consumed != null) {
+            consumed[0] = consumedX
+            consumed[1] = consumedY
+        }
+        endOffsetInWindow(offsetInWindow)
+        return consumedX != 0 || consumedY != 0
+    }
+
+    /**
+     * Fling consumption by Compose parents is only known asynchronously, so pre fling is only
+     * advisory: view always flings by itself, dispatching its frames to parents, which can still
+     * consume them.
+     */
+    override fun dispatchNestedPreFling(velocityX: Float, velocityY: Float): Boolean {
+        if (nestedScrollTypes == 0) {
+            return false
+        }
+        val velocity = toComposeVelocity(velocityX, velocityY)
+        preFlingJob = getDispatcherScope()?.launch {
+            dispatcher.dispatchPreFling(velocity)
+        }
+        return false
+    }
+
+    override fun dispatchNestedFling(velocityX: Float, velocityY: Float, consumed: Boolean): Boolean {
+        if (nestedScrollTypes == 0) {
+            return false
+        }
+        flingVelocity = toComposeVelocity(velocityX, velocityY)
+        remainingFlingVelocity = Velocity.Zero
+        isFlingConsumed = consumed
+        return false
+    }
+
+    override fun dispatchRemainingFlingVelocity(velocityX: Float, velocityY: Float) {
+        if (hasNestedScrollingParent(ViewCompat.TYPE_NON_TOUCH)) {
+            remainingFlingVelocity = toComposeVelocity(velocityX, velocityY)
+        }
+    }
+
+    /**
+     * Flings performed by the view consume its velocity but the one left once it can't scroll
+     * any further, which is left available to parents.
+     */
+    private fun dispatchPostFling() {
+        val available = if (isFlingConsumed) remainingFlingVelocity else flingVelocity
+        val consumed = if (isFlingConsumed) flingVelocity - remainingFlingVelocity else Velocity.Zero
+        val pendingPreFling = preFlingJob
+        preFlingJob = null
+        getDispatcherScope()?.launch {
+            pendingPreFling?.join()
+            dispatcher.dispatchPostFling(consumed, available)
+        }
+    }
+
+    /**
+     * Returns the scope of the node the dispatcher is attached to, or null if [Modifier.nestedScroll]
+     * with this bridge is not attached (e.g. it was omitted or its node was released), in which
+     * case flings are not dispatched.
+     */
+    @Suppress("SwallowedException")
+    private fun getDispatcherScope(): CoroutineScope? =
+        try {
+            dispatcher.coroutineScope
+        } catch (e: IllegalStateException) {
+            null
+        }
+
+    private fun startOffsetInWindow(offsetInWindow: IntArray?) {
+        if (offsetInWindow != null) {
+            webView?.getLocationInWindow(windowLocation)
+            offsetInWindow[0] = windowLocation[0]
+            offsetInWindow[1] = windowLocation[1]
+        }
+    }
+
+    private fun endOffsetInWindow(offsetInWindow: IntArray?) {
+        if (offsetInWindow != null) {
+            webView?.getLocationInWindow(windowLocation)
+            offsetInWindow[0] = windowLocation[0] - offsetInWindow[0]
+            offsetInWindow[1] = windowLocation[1] - offsetInWindow[1]
+        }
+    }
+
+    private fun toComposeOffset(dx: Int, dy: Int): Offset =
+        Offset(-dx.toFloat(), -dy.toFloat())
+
+    private fun toComposeVelocity(velocityX: Float, velocityY: Float): Velocity =
+        Velocity(-velocityX, -velocityY)
+
+    private fun toComposeSource(type: Int): NestedScrollSource =
+        if (type == ViewCompat.TYPE_TOUCH) NestedScrollSource.UserInput else NestedScrollSource.SideEffect
+
+    private fun typeFlag(type: Int): Int = 1 shl type
+}
+
+/**
+ * Remembers a [NestedScrollWebViewBridge], to be attached to the hosted [NestedScrollWebView]
+ * and set on its `AndroidView` modifier with [Modifier.nestedScroll].
+ */
+@Composable
+fun rememberNestedScrollWebViewBridge(): NestedScrollWebViewBridge =
+    remember { NestedScrollWebViewBridge() }
+
+/**
+ * Connects nested scrolling of the [NestedScrollWebView] attached to [bridge] with Compose nested
+ * scrolling parents of this node.
+ */
+fun Modifier.nestedScroll(bridge: NestedScrollWebViewBridge): Modifier =
+    nestedScroll(NoOpNestedScrollConnection, bridge.dispatcher)
+
+private object NoOpNestedScrollConnection : NestedScrollConnection
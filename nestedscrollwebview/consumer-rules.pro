@@ -0,0 +1,3 @@
+-keepclassmembers class com.telefonica.nestedscrollwebview.helper.** {
+    @android.webkit.JavascriptInterface <methods>;
+}
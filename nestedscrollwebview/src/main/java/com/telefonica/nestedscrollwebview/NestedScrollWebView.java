@@ -19,12 +19,18 @@ import static androidx.annotation.RestrictTo.Scope.LIBRARY;
 
 import android.content.Context;
 import android.content.res.TypedArray;
+import android.graphics.Canvas;
+import android.os.Parcel;
+import android.os.Parcelable;
+import android.os.PowerManager;
 import android.util.AttributeSet;
 import android.util.Log;
+import android.view.Display;
 import android.view.MotionEvent;
 import android.view.VelocityTracker;
 import android.view.ViewConfiguration;
 import android.view.ViewParent;
+import android.view.animation.AnimationUtils;
 import android.webkit.WebView;
 import android.widget.EdgeEffect;
 import android.widget.OverScroller;
@@ -33,13 +39,30 @@ import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 import androidx.annotation.RestrictTo;
 import androidx.annotation.VisibleForTesting;
+import androidx.core.view.InputDeviceCompat;
+import androidx.core.view.MotionEventCompat;
 import androidx.core.view.NestedScrollingChild3;
 import androidx.core.view.NestedScrollingChildHelper;
 import androidx.core.view.ViewCompat;
+import androidx.core.view.ViewConfigurationCompat;
 import androidx.core.widget.EdgeEffectCompat;
 
+import com.telefonica.nestedscrollwebview.helper.BottomMatchingMode;
 import com.telefonica.nestedscrollwebview.helper.CoordinatorLayoutChildHelper;
+import com.telefonica.nestedscrollwebview.helper.ExternalNestedScrollDispatcher;
 import com.telefonica.nestedscrollwebview.helper.InternalScrollDetector;
+import com.telefonica.nestedscrollwebview.helper.InternalScrollPageProbe;
+import com.telefonica.nestedscrollwebview.helper.MotionTracePlayer;
+import com.telefonica.nestedscrollwebview.helper.MotionTraceRecorder;
+import com.telefonica.nestedscrollwebview.helper.NestedScrollState;
+import com.telefonica.nestedscrollwebview.helper.OnScrollGestureMetricsListener;
+import com.telefonica.nestedscrollwebview.helper.ScrollGestureMetricsTracker;
+import com.telefonica.nestedscrollwebview.helper.ScrollStatePublisher;
+import com.telefonica.nestedscrollwebview.helper.ScrollTracing;
+
+import org.json.JSONObject;
+
+import kotlinx.coroutines.flow.StateFlow;
 
 public class NestedScrollWebView extends WebView implements NestedScrollingChild3 {
 
@@ -48,6 +71,49 @@ public class NestedScrollWebView extends WebView implements NestedScrollingChild
     private final InternalScrollDetector internalScrollDetector =
             new InternalScrollDetector();
 
+    private static final float DEFAULT_REFRESH_RATE = 60f;
+
+    @Nullable
+    private InternalScrollPageProbe internalScrollPageProbe;
+
+    private boolean batchedTouchMovesEnabled = false;
+    private boolean twoAxisNestedScrollingEnabled = false;
+    private boolean rangeBoundedFlingEnabled = false;
+    private boolean flingVelocityHandOffEnabled = false;
+    private boolean wheelNestedScrollingEnabled = false;
+    private int powerSaveFlingFrameRate = 0;
+    private long flingFrameIntervalMillis = 0;
+    private long lastFlingFrameTime;
+    private boolean isCappedFlingFramePending = false;
+    private final Runnable cappedFlingFrameRunnable = () -> {
+        isCappedFlingFramePending = false;
+        ViewCompat.postInvalidateOnAnimation(this);
+    };
+
+    @Nullable
+    private ExternalNestedScrollDispatcher externalNestedScrollDispatcher;
+    @Nullable
+    private ScrollGestureMetricsTracker scrollGestureMetricsTracker;
+    @Nullable
+    private MotionTraceRecorder motionTraceRecorder;
+    @Nullable
+    private MotionTracePlayer motionTracePlayer;
+    @Nullable
+    private ScrollStatePublisher scrollStatePublisher;
+
+    private boolean scrollMetricsDirty = true;
+    private int cachedVerticalScrollRange;
+    private int cachedVerticalScrollExtent;
+    private boolean cachedCanScrollVertical;
+    private boolean cachedCanScrollHorizontal;
+    private int lastContentScrollRangeX;
+    private int lastContentScrollRangeY;
+
+    private static final int NO_PENDING_SCROLL_RESTORE = -1;
+    private static final int PAGE_LOADED_PROGRESS = 100;
+    private int pendingRestoreScrollY = NO_PENDING_SCROLL_RESTORE;
+    private int pendingRestoreContentHeight;
+
     public NestedScrollWebView(Context context) {
         super(context);
         init(context, null, null);
@@ -73,6 +139,18 @@ public class NestedScrollWebView extends WebView implements NestedScrollingChild
                         defStyleAttr != null ? defStyleAttr : 0,
                         0
                 );
+                coordinatorLayoutChildHelper.setBottomMatchingMode(
+                        BottomMatchingMode.values()[styledAttrs.getInt(
+                                R.styleable.NestedScrollWebView_coordinatorBottomMatchingMode,
+                                BottomMatchingMode.MARGIN.ordinal()
+                        )]
+                );
+                coordinatorLayoutChildHelper.setBottomMatchingStep(
+                        styledAttrs.getDimensionPixelSize(
+                                R.styleable.NestedScrollWebView_coordinatorBottomMatchingStep,
+                                0
+                        )
+                );
                 coordinatorLayoutChildHelper.setBottomMatchingBehaviourEnabled(
                         styledAttrs.getBoolean(
                                 R.styleable.NestedScrollWebView_coordinatorBottomMatchingEnabled,
@@ -85,6 +163,36 @@ public class NestedScrollWebView extends WebView implements NestedScrollingChild
                                 true
                         )
                 );
+                setInternalContentScrollsPageProbeEnabled(
+                        styledAttrs.getBoolean(
+                                R.styleable.NestedScrollWebView_internalContentScrollsPageProbeEnabled,
+                                false
+                        )
+                );
+                batchedTouchMovesEnabled = styledAttrs.getBoolean(
+                        R.styleable.NestedScrollWebView_batchedTouchMovesEnabled,
+                        false
+                );
+                twoAxisNestedScrollingEnabled = styledAttrs.getBoolean(
+                        R.styleable.NestedScrollWebView_twoAxisNestedScrollingEnabled,
+                        false
+                );
+                flingVelocityHandOffEnabled = styledAttrs.getBoolean(
+                        R.styleable.NestedScrollWebView_flingVelocityHandOffEnabled,
+                        false
+                );
+                rangeBoundedFlingEnabled = styledAttrs.getBoolean(
+                        R.styleable.NestedScrollWebView_rangeBoundedFlingEnabled,
+                        false
+                );
+                wheelNestedScrollingEnabled = styledAttrs.getBoolean(
+                        R.styleable.NestedScrollWebView_wheelNestedScrollingEnabled,
+                        false
+                );
+                powerSaveFlingFrameRate = styledAttrs.getInt(
+                        R.styleable.NestedScrollWebView_powerSaveFlingFrameRate,
+                        0
+                );
             } finally {
                 if (styledAttrs != null) {
                     styledAttrs.recycle();
@@ -108,16 +216,19 @@ public class NestedScrollWebView extends WebView implements NestedScrollingChild
 
     private OverScroller mScroller;
 
+    /* Not present on NestedScrollView code. Edge effects are only created while an overscroll
+    mode other than OVER_SCROLL_NEVER is set, see setOverScrollMode. */
+
     /** @hide */
     @RestrictTo(LIBRARY)
     @VisibleForTesting
-    @NonNull
+    @Nullable
     public EdgeEffect mEdgeGlowTop;
 
     /** @hide */
     @RestrictTo(LIBRARY)
     @VisibleForTesting
-    @NonNull
+    @Nullable
     public EdgeEffect mEdgeGlowBottom;
 
     /**
@@ -156,6 +267,36 @@ public class NestedScrollWebView extends WebView implements NestedScrollingChild
 
     private int mLastScrollerY;
 
+    private static final int DEFAULT_SMOOTH_SCROLL_DURATION = 250;
+
+    /* Not present on NestedScrollView code. Page scroll position targeted by current smooth
+    scroll, and page scroll position its current leg started from. */
+    private static final int NO_SMOOTH_SCROLL_TARGET = -1;
+    private int smoothScrollTargetY = NO_SMOOTH_SCROLL_TARGET;
+    private int smoothScrollLegStartY;
+
+    /* Not present on NestedScrollView code. Scroll wheel and rotary input deltas are animated
+    by the scroller, which is retargeted by each event while running. */
+    private static final int WHEEL_SCROLL_DURATION = 100;
+    private float mVerticalScrollFactor;
+    private float wheelScrollRemainderY;
+    private boolean isWheelScrollRunning = false;
+
+    /* Not present on NestedScrollView code. Horizontal position of the last motion event, and
+    nested scrolling axis locked for the current gesture. */
+    private int mLastMotionX;
+    private int lockedScrollAxis = ViewCompat.SCROLL_AXIS_NONE;
+
+    /* Not present on NestedScrollView code. While several pointers are down motion follows their
+    focal point, and nested scrolling is suspended once their span changes as on a scale gesture
+    (e.g. pinch-zoom), until a single pointer is left. */
+    private float pointersFocusX;
+    private float pointersFocusY;
+    private float pointersSpan;
+    private float scaleGestureStartSpan;
+    private boolean isScaleGestureInProgress = false;
+    private boolean isScaleGestureDetected = false;
+
 
     /**
      * Sentinel value for no current active pointer.
@@ -167,8 +308,10 @@ public class NestedScrollWebView extends WebView implements NestedScrollingChild
 
     // NestedScrollView constructor
     public void initNestedScrollView(@NonNull Context context, @Nullable AttributeSet attrs/*, int defStyleAttr*/) {
+        /*
         mEdgeGlowTop = EdgeEffectCompat.create(context, attrs);
         mEdgeGlowBottom = EdgeEffectCompat.create(context, attrs);
+        */
 
         initScrollView();
 
@@ -198,10 +341,21 @@ public class NestedScrollWebView extends WebView implements NestedScrollingChild
         mTouchSlop = configuration.getScaledTouchSlop();
         mMinimumVelocity = configuration.getScaledMinimumFlingVelocity();
         mMaximumVelocity = configuration.getScaledMaximumFlingVelocity();
+        mVerticalScrollFactor =
+                ViewConfigurationCompat.getScaledVerticalScrollFactor(configuration, getContext());
     }
 
-    /* NestedScrollView onTouchEvent */
     public void onNestedTouchEvent(@NonNull MotionEvent ev) {
+        ScrollTracing.beginSection(ScrollTracing.SECTION_NESTED_TOUCH_EVENT);
+        try {
+            handleNestedTouchEvent(ev);
+        } finally {
+            ScrollTracing.endSection();
+        }
+    }
+
+    /* NestedScrollView onTouchEvent */
+    private void handleNestedTouchEvent(@NonNull MotionEvent ev) {
         initVelocityTrackerIfNotExists();
 
         final int actionMasked = ev.getActionMasked();
@@ -211,11 +365,17 @@ public class NestedScrollWebView extends WebView implements NestedScrollingChild
             /* Not present on NestedScrollView code. We need to reset scroll offset on touch down,
             as we found while testing that in some cases action was invoked with a non-zero scroll
             offset, breaking page scroll. */
+            mScrollOffset[0] = 0;
             mScrollOffset[1] = 0;
+            /* Content may have changed since last gesture without any notification
+            (e.g. a new page was loaded), so scroll metrics are computed again. */
+            invalidateScrollMetrics();
         }
 
-        MotionEvent vtev = MotionEvent.obtain(ev);
-        vtev.offsetLocation(0, mNestedYOffset);
+        /* Not present on NestedScrollView code. Instead of cloning the event to build the
+        velocity sample we offset it in place and restore it once added, keeping the touch path
+        free of allocations. */
+        final int velocitySampleOffsetY = mNestedYOffset;
 
         switch (actionMasked) {
             case MotionEvent.ACTION_DOWN: {
@@ -238,10 +398,18 @@ public class NestedScrollWebView extends WebView implements NestedScrollingChild
                     abortAnimatedScroll();
                 }
 
+                mVelocityTracker.clear();
+                if (scrollGestureMetricsTracker != null) {
+                    scrollGestureMetricsTracker.onTouchGestureStarted();
+                }
+
                 // Remember where the motion event started
                 mLastMotionY = (int) ev.getY();
+                mLastMotionX = (int) ev.getX();
                 mActivePointerId = ev.getPointerId(0);
-                startNestedScroll(ViewCompat.SCROLL_AXIS_VERTICAL, ViewCompat.TYPE_TOUCH);
+                isScaleGestureInProgress = false;
+                isScaleGestureDetected = false;
+                startTouchNestedScroll();
                 break;
             }
             case MotionEvent.ACTION_MOVE:
@@ -251,26 +419,79 @@ public class NestedScrollWebView extends WebView implements NestedScrollingChild
                     break;
                 }
 
-                final int y = (int) ev.getY(activePointerIndex);
+                /* Not present on NestedScrollView code. Several pointers move the page by their
+                focal point, unless on a scale gesture, where nothing is dispatched. */
+                final boolean isMultiPointer = ev.getPointerCount() > 1;
+                if (isMultiPointer) {
+                    updatePointersFocus(ev);
+                    if (detectScaleGesture()) {
+                        break;
+                    }
+                }
+                final int x = isMultiPointer
+                        ? (int) pointersFocusX
+                        : (int) ev.getX(activePointerIndex);
+                final int y = isMultiPointer
+                        ? (int) pointersFocusY
+                        : (int) ev.getY(activePointerIndex);
+
+                /* Not present on NestedScrollView code. On two axis mode, the axis is locked
+                once touch slop is exceeded, dispatching nested scrolls only for that axis. */
+                if (twoAxisNestedScrollingEnabled
+                        && lockedScrollAxis == ViewCompat.SCROLL_AXIS_NONE) {
+                    lockedScrollAxis = lockScrollAxisIfNeeded(x, y);
+                    if (lockedScrollAxis == ViewCompat.SCROLL_AXIS_NONE) {
+                        break;
+                    }
+                }
+                if (lockedScrollAxis == ViewCompat.SCROLL_AXIS_HORIZONTAL) {
+                    onHorizontalNestedMove(x);
+                    break;
+                }
+
                 int deltaY = mLastMotionY - y;
-                deltaY -= releaseVerticalGlow(deltaY, ev.getX(activePointerIndex));
-                if (!mIsBeingDragged && Math.abs(deltaY) > mTouchSlop) {
+                // Not present on NestedScrollView code. Edge effects only exist if overscroll is.
+                final int glowConsumedY = mEdgeGlowTop != null
+                        ? releaseVerticalGlow(deltaY, ev.getX(activePointerIndex))
+                        : 0;
+                deltaY -= glowConsumedY;
+                /* Not present on NestedScrollView code. On batched touch moves mode touch slop
+                is checked against every historical sample of the event, so a drag is started on
+                the same frame its slop was crossed even if the last sample went back inside it.
+                Slop is only checked until a drag is started. */
+                final int touchSlopDirection;
+                if (mIsBeingDragged) {
+                    touchSlopDirection = 0;
+                } else if (batchedTouchMovesEnabled && !isMultiPointer) {
+                    touchSlopDirection =
+                            getBatchedTouchSlopDirection(ev, activePointerIndex, glowConsumedY);
+                } else {
+                    touchSlopDirection = getTouchSlopDirection(deltaY);
+                }
+                if (!mIsBeingDragged && touchSlopDirection != 0) {
                     final ViewParent parent = getParent();
                     if (parent != null) {
                         parent.requestDisallowInterceptTouchEvent(true);
                     }
                     mIsBeingDragged = true;
-                    if (deltaY > 0) {
-                        deltaY -= mTouchSlop;
+                    // Not present on NestedScrollView code.
+                    notifyScrollInProgress();
+                    /* Not present on NestedScrollView code. Slop direction may come from a
+                    historical sample, with the last one back inside the slop, so the remaining
+                    delta is clamped to not scroll against the drag direction. */
+                    if (touchSlopDirection > 0) {
+                        deltaY = Math.max(0, deltaY - mTouchSlop);
                     } else {
-                        deltaY += mTouchSlop;
+                        deltaY = Math.min(0, deltaY + mTouchSlop);
                     }
                 }
                 if (mIsBeingDragged) {
+                    int parentConsumedY = 0;
                     // Start with nested pre scrolling
                     if (dispatchNestedPreScroll(0, deltaY, mScrollConsumed, mScrollOffset,
                             ViewCompat.TYPE_TOUCH)) {
                         deltaY -= mScrollConsumed[1];
+                        parentConsumedY = mScrollConsumed[1];
                         mNestedYOffset += mScrollOffset[1];
                     }
 
@@ -297,10 +518,21 @@ public class NestedScrollWebView extends WebView implements NestedScrollingChild
                     dispatchNestedScroll(0, scrolledDeltaY, 0, unconsumedY, mScrollOffset,
                             ViewCompat.TYPE_TOUCH, mScrollConsumed);
 
+                    if (motionTraceRecorder != null) {
+                        motionTraceRecorder.recordNestedScroll(ev.getEventTime(),
+                                ViewCompat.TYPE_TOUCH, parentConsumedY + mScrollConsumed[1],
+                                scrolledDeltaY, unconsumedY - mScrollConsumed[1]);
+                    }
+                    if (scrollGestureMetricsTracker != null) {
+                        scrollGestureMetricsTracker.onScrollStep(parentConsumedY + unconsumedY
+                                + scrolledDeltaY, parentConsumedY + mScrollConsumed[1],
+                                scrolledDeltaY);
+                    }
+
                     mLastMotionY -= mScrollOffset[1];
                     mNestedYOffset += mScrollOffset[1];
 
-                    if (canOverscroll) {
+                    if (canOverscroll && mEdgeGlowTop != null && mEdgeGlowBottom != null) {
                         deltaY -= mScrollConsumed[1];
                         final int pulledToY = oldY + deltaY;
                         if (pulledToY < 0) {
@@ -333,8 +565,14 @@ public class NestedScrollWebView extends WebView implements NestedScrollingChild
                 final VelocityTracker velocityTracker = mVelocityTracker;
                 velocityTracker.computeCurrentVelocity(1000, mMaximumVelocity);
                 int initialVelocity = (int) velocityTracker.getYVelocity(mActivePointerId);
-                if ((Math.abs(initialVelocity) >= mMinimumVelocity)) {
-                    if (!edgeEffectFling(initialVelocity)
+                /* Not present on NestedScrollView code. Pointers lifted after a scale gesture
+                without dragging again are not flinging the page. */
+                final boolean isFlingSkipped = isScaleGestureDetected && !mIsBeingDragged;
+                if (lockedScrollAxis == ViewCompat.SCROLL_AXIS_HORIZONTAL) {
+                    // Not present on NestedScrollView code. Page flings horizontally by itself.
+                    onHorizontalNestedFling((int) velocityTracker.getXVelocity(mActivePointerId));
+                } else if (!isFlingSkipped && (Math.abs(initialVelocity) >= mMinimumVelocity)) {
+                    if (!(mEdgeGlowTop != null && edgeEffectFling(initialVelocity))
                             && !dispatchNestedPreFling(0, -initialVelocity)) {
                         dispatchNestedFling(0, -initialVelocity, true);
                         fling(-initialVelocity);
@@ -345,6 +583,9 @@ public class NestedScrollWebView extends WebView implements NestedScrollingChild
                 }
                 mActivePointerId = INVALID_POINTER;
                 endDrag();
+                if (scrollGestureMetricsTracker != null) {
+                    scrollGestureMetricsTracker.onTouchGestureEnded();
+                }
                 break;
             case MotionEvent.ACTION_CANCEL:
                 // WebView always return no children
@@ -355,12 +596,21 @@ public class NestedScrollWebView extends WebView implements NestedScrollingChild
                     }
                 }
                 mActivePointerId = INVALID_POINTER;
+                isScaleGestureInProgress = false;
                 endDrag();
+                if (scrollGestureMetricsTracker != null) {
+                    scrollGestureMetricsTracker.onTouchGestureEnded();
+                }
                 break;
             case MotionEvent.ACTION_POINTER_DOWN: {
                 final int index = ev.getActionIndex();
-                mLastMotionY = (int) ev.getY(index);
                 mActivePointerId = ev.getPointerId(index);
+                /* Not present on NestedScrollView code. Motion goes on from the focal point of
+                all pointers, and span changes are measured from here. */
+                updatePointersFocus(ev);
+                mLastMotionY = (int) pointersFocusY;
+                mLastMotionX = (int) pointersFocusX;
+                scaleGestureStartSpan = pointersSpan;
                 break;
             }
             case MotionEvent.ACTION_POINTER_UP:
@@ -371,15 +621,102 @@ public class NestedScrollWebView extends WebView implements NestedScrollingChild
                     Log.e(TAG, "Invalid pointerId=" + mActivePointerId + " in onTouchEvent for ACTION_POINTER_UP");
                     break;
                 }
+                // Motion goes on from the focal point of the pointers left.
+                updatePointersFocus(ev);
+                mLastMotionY = (int) pointersFocusY;
+                mLastMotionX = (int) pointersFocusX;
+                scaleGestureStartSpan = pointersSpan;
+                if (isScaleGestureInProgress && ev.getPointerCount() == 2) {
+                    resumeNestedScrollingAfterScaleGesture();
+                }
                 /* End of code not present on NestedScrollView code. */
-                mLastMotionY = (int) ev.getY(ev.findPointerIndex(mActivePointerId));
                 break;
         }
 
-        if (mVelocityTracker != null) {
-            mVelocityTracker.addMovement(vtev);
+        if (actionMasked != MotionEvent.ACTION_UP && actionMasked != MotionEvent.ACTION_CANCEL) {
+            ev.offsetLocation(0, velocitySampleOffsetY);
+            mVelocityTracker.addMovement(ev);
+            ev.offsetLocation(0, -velocitySampleOffsetY);
         }
-        vtev.recycle();
+        ScrollTracing.setCounter(ScrollTracing.COUNTER_NESTED_OFFSET, mNestedYOffset);
+    }
+
+    @Override
+    public boolean onGenericMotionEvent(@NonNull MotionEvent motionEvent) {
+        if (wheelNestedScrollingEnabled && motionEvent.getAction() == MotionEvent.ACTION_SCROLL
+                && !mIsBeingDragged) {
+            final float axisValue;
+            if (MotionEventCompat.isFromSource(motionEvent,
+                    InputDeviceCompat.SOURCE_CLASS_POINTER)) {
+                axisValue = motionEvent.getAxisValue(MotionEvent.AXIS_VSCROLL);
+            } else if (MotionEventCompat.isFromSource(motionEvent,
+                    InputDeviceCompat.SOURCE_ROTARY_ENCODER)) {
+                axisValue = motionEvent.getAxisValue(MotionEventCompat.AXIS_SCROLL);
+            } else {
+                axisValue = 0;
+            }
+            // Not present on NestedScrollView code. Events parents can't consume are left to page.
+            if (axisValue != 0 && canDispatchWheelScroll(motionEvent, axisValue > 0 ? -1 : 1)) {
+                /* Not present on NestedScrollView code. Instead of scrolling to the new position
+                right away, fractional deltas are accumulated and whole pixels are animated by the
+                scroller, taking part in nested scrolling at most once per frame. */
+                wheelScrollRemainderY -= axisValue * mVerticalScrollFactor;
+                final int deltaY = (int) wheelScrollRemainderY;
+                wheelScrollRemainderY -= deltaY;
+                if (deltaY != 0) {
+                    runWheelScroll(deltaY);
+                }
+                return true;
+            }
+        }
+        return super.onGenericMotionEvent(motionEvent);
+    }
+
+    /**
+     * Wheel events are only taken from the page while nested scrolling parents can consume them,
+     * so page wheel listeners, ctrl + wheel zoom, diagonal scrolls and internally scrollable
+     * elements keep working otherwise.
+     *
+     * @param direction The scroll direction, positive for scrolling down.
+     */
+    private boolean canDispatchWheelScroll(@NonNull MotionEvent motionEvent, int direction) {
+        if (motionEvent.isCtrlPressed()
+                || motionEvent.getAxisValue(MotionEvent.AXIS_HSCROLL) != 0
+                || internalScrollDetector.isOverInternalScroll(motionEvent.getX(), motionEvent.getY(),
+                        ViewCompat.SCROLL_AXIS_VERTICAL)) {
+            return false;
+        }
+        if (isWheelScrollRunning && !mScroller.isFinished()) {
+            return true;
+        }
+        final int nestedDistance =
+                coordinatorLayoutChildHelper.getNestedScrollableDistance(direction);
+        if (nestedDistance != CoordinatorLayoutChildHelper.UNKNOWN_NESTED_SCROLL_DISTANCE) {
+            return nestedDistance > 0;
+        }
+        // Other nested scrolling parents can only be offered what page can't scroll itself.
+        return !canScrollVertically(direction)
+                && startNestedScroll(ViewCompat.SCROLL_AXIS_VERTICAL, ViewCompat.TYPE_NON_TOUCH);
+    }
+
+    /**
+     * Adds given delta to the running wheel scroll, retargeting the scroller from its current
+     * position, or starts a new one.
+     */
+    private void runWheelScroll(int deltaY) {
+        if (isWheelScrollRunning && !mScroller.isFinished()) {
+            final int remainingY = mScroller.getFinalY() - mLastScrollerY;
+            mScroller.startScroll(getScrollX(), mLastScrollerY, 0, remainingY + deltaY,
+                    WHEEL_SCROLL_DURATION);
+            ViewCompat.postInvalidateOnAnimation(this);
+            return;
+        }
+        if (!mScroller.isFinished()) {
+            abortAnimatedScroll();
+        }
+        mScroller.startScroll(getScrollX(), getScrollY(), 0, deltaY, WHEEL_SCROLL_DURATION);
+        runAnimatedScroll(true);
+        isWheelScrollRunning = true;
     }
 
     @Override
@@ -389,9 +726,48 @@ public class NestedScrollWebView extends WebView implements NestedScrollingChild
             return;
         }
 
+        /* Not present on NestedScrollView code. Frames over the capped fling frame rate are
+        skipped, and the view is only invalidated again once next stepped frame is due, so no
+        frames are drawn in between. A single invalidation is kept pending, as views drawn for
+        other reasons in between would otherwise schedule one each. */
+        if (flingFrameIntervalMillis > 0) {
+            final long frameTime = AnimationUtils.currentAnimationTimeMillis();
+            final long elapsedMillis = frameTime - lastFlingFrameTime;
+            if (elapsedMillis < flingFrameIntervalMillis) {
+                if (!isCappedFlingFramePending) {
+                    isCappedFlingFramePending = true;
+                    postDelayed(cappedFlingFrameRunnable, flingFrameIntervalMillis - elapsedMillis);
+                }
+                return;
+            }
+            lastFlingFrameTime = frameTime;
+        }
+
+        ScrollTracing.beginSection(ScrollTracing.SECTION_COMPUTE_SCROLL);
+        try {
+            stepAnimatedScroll();
+        } finally {
+            ScrollTracing.endSection();
+        }
+    }
+
+    private void stepAnimatedScroll() {
         mScroller.computeScrollOffset();
         final int y = mScroller.getCurrY();
         int unconsumed = y - mLastScrollerY;
+
+        /* Not present on NestedScrollView code. Sub-pixel steps are coalesced until scroller
+        position moves a whole pixel, without walking nested scrolling parents for nothing. */
+        if (unconsumed == 0 && !mScroller.isFinished()) {
+            if (scrollGestureMetricsTracker != null) {
+                scrollGestureMetricsTracker.onFlingFrame();
+            }
+            ViewCompat.postInvalidateOnAnimation(this);
+            return;
+        }
+
+        final int scrollerDeltaY = unconsumed;
+        int scrolledByMe = 0;
         mLastScrollerY = y;
 
         // Nested Scrolling Pre Pass
@@ -405,8 +781,10 @@ public class NestedScrollWebView extends WebView implements NestedScrollingChild
         if (unconsumed != 0) {
             // Internal Scroll
             final int oldScrollY = getScrollY();
-            overScrollByCompat(0, unconsumed, getScrollX(), oldScrollY, 0, range, 0, 0, false);
-            final int scrolledByMe = getScrollY() - oldScrollY;
+            // Not present on NestedScrollView code. Smooth scrolls do not move past their target.
+            overScrollByCompat(0, clampToSmoothScrollTarget(unconsumed, oldScrollY), getScrollX(),
+                    oldScrollY, 0, range, 0, 0, false);
+            scrolledByMe = getScrollY() - oldScrollY;
             unconsumed -= scrolledByMe;
 
             // Nested Scrolling Post Pass
@@ -416,11 +794,25 @@ public class NestedScrollWebView extends WebView implements NestedScrollingChild
             unconsumed -= mScrollConsumed[1];
         }
 
+        if (motionTraceRecorder != null) {
+            final long frameTime = AnimationUtils.currentAnimationTimeMillis();
+            motionTraceRecorder.recordScroller(frameTime, y, getScrollY(),
+                    (int) mScroller.getCurrVelocity());
+            motionTraceRecorder.recordNestedScroll(frameTime, ViewCompat.TYPE_NON_TOUCH,
+                    scrollerDeltaY - scrolledByMe - unconsumed, scrolledByMe, unconsumed);
+        }
+        if (scrollGestureMetricsTracker != null) {
+            scrollGestureMetricsTracker.onFlingFrame();
+            scrollGestureMetricsTracker.onScrollStep(scrollerDeltaY,
+                    scrollerDeltaY - scrolledByMe - unconsumed, scrolledByMe);
+        }
+        notifyScrollStateChanged();
+
         if (unconsumed != 0) {
             final int mode = getOverScrollMode();
             final boolean canOverscroll = mode == OVER_SCROLL_ALWAYS
                     || (mode == OVER_SCROLL_IF_CONTENT_SCROLLS && range > 0);
-            if (canOverscroll) {
+            if (canOverscroll && mEdgeGlowTop != null && mEdgeGlowBottom != null) {
                 if (unconsumed < 0) {
                     if (mEdgeGlowTop.isFinished()) {
                         mEdgeGlowTop.onAbsorb((int) mScroller.getCurrVelocity());
@@ -430,14 +822,217 @@ public class NestedScrollWebView extends WebView implements NestedScrollingChild
                         mEdgeGlowBottom.onAbsorb((int) mScroller.getCurrVelocity());
                     }
                 }
+            } else if (smoothScrollTargetY == NO_SMOOTH_SCROLL_TARGET) {
+                // Not present on NestedScrollView code.
+                dispatchRemainingFlingVelocity(unconsumed);
+                handOffFlingVelocity(unconsumed);
             }
             abortAnimatedScroll();
         }
 
         if (!mScroller.isFinished()) {
             ViewCompat.postInvalidateOnAnimation(this);
+        } else if (continueSmoothScrollIfNeeded()) {
+            // Not present on NestedScrollView code.
+            ViewCompat.postInvalidateOnAnimation(this);
         } else {
             stopNestedScroll(ViewCompat.TYPE_NON_TOUCH);
+            if (scrollGestureMetricsTracker != null) {
+                scrollGestureMetricsTracker.onFlingEnded();
+            }
+            // Not present on NestedScrollView code.
+            notifyScrollInProgress();
+        }
+    }
+
+    /**
+     * Locks the nested scrolling axis to the one with the largest motion once touch slop is
+     * exceeded, starting nested scrolling for it.
+     *
+     * @return The locked axis, or {@link ViewCompat#SCROLL_AXIS_NONE} if touch slop was not
+     * exceeded yet.
+     */
+    private int lockScrollAxisIfNeeded(int x, int y) {
+        final int deltaX = mLastMotionX - x;
+        final int deltaY = mLastMotionY - y;
+        if (Math.max(Math.abs(deltaX), Math.abs(deltaY)) <= mTouchSlop) {
+            return ViewCompat.SCROLL_AXIS_NONE;
+        }
+        if (Math.abs(deltaX) > Math.abs(deltaY)) {
+            mLastMotionX -= deltaX > 0 ? mTouchSlop : -mTouchSlop;
+            startNestedScroll(ViewCompat.SCROLL_AXIS_HORIZONTAL, ViewCompat.TYPE_TOUCH);
+            return ViewCompat.SCROLL_AXIS_HORIZONTAL;
+        }
+        startNestedScroll(ViewCompat.SCROLL_AXIS_VERTICAL, ViewCompat.TYPE_TOUCH);
+        return ViewCompat.SCROLL_AXIS_VERTICAL;
+    }
+
+    /**
+     * Page scrolls horizontally by itself with the whole motion, which can't be withheld from it,
+     * so horizontal motion is not offered to nested scrolling parents first, and only passed as
+     * unconsumed when page can't scroll any further.
+     */
+    private void onHorizontalNestedMove(int x) {
+        final int deltaX = mLastMotionX - x;
+        mLastMotionX = x;
+        if (deltaX != 0 && !canScrollHorizontally(deltaX)) {
+            mScrollOffset[0] = 0;
+            mScrollConsumed[0] = 0;
+            dispatchNestedScroll(0, 0, deltaX, 0, mScrollOffset, ViewCompat.TYPE_TOUCH,
+                    mScrollConsumed);
+            mLastMotionX -= mScrollOffset[0];
+        }
+    }
+
+    private void onHorizontalNestedFling(int velocityX) {
+        if (Math.abs(velocityX) >= mMinimumVelocity) {
+            dispatchNestedFling(-velocityX, 0, canScrollHorizontally(-velocityX));
+        }
+    }
+
+    /**
+     * Starts touch nested scrolling for a new gesture. On two axis mode it is started once its
+     * axis is locked instead.
+     */
+    private void startTouchNestedScroll() {
+        if (twoAxisNestedScrollingEnabled) {
+            lockedScrollAxis = ViewCompat.SCROLL_AXIS_NONE;
+        } else {
+            lockedScrollAxis = ViewCompat.SCROLL_AXIS_VERTICAL;
+            startNestedScroll(ViewCompat.SCROLL_AXIS_VERTICAL, ViewCompat.TYPE_TOUCH);
+        }
+    }
+
+    /**
+     * Computes the focal point and span of the pointers down on given event, leaving out the
+     * one going up, the same way {@link android.view.ScaleGestureDetector} does.
+     */
+    private void updatePointersFocus(@NonNull MotionEvent ev) {
+        final int skipIndex = ev.getActionMasked() == MotionEvent.ACTION_POINTER_UP
+                ? ev.getActionIndex()
+                : -1;
+        final int pointerCount = ev.getPointerCount();
+        final int count = skipIndex == -1 ? pointerCount : pointerCount - 1;
+        float sumX = 0;
+        float sumY = 0;
+        for (int i = 0; i < pointerCount; i++) {
+            if (i != skipIndex) {
+                sumX += ev.getX(i);
+                sumY += ev.getY(i);
+            }
+        }
+        pointersFocusX = sumX / count;
+        pointersFocusY = sumY / count;
+
+        float deviationSumX = 0;
+        float deviationSumY = 0;
+        for (int i = 0; i < pointerCount; i++) {
+            if (i != skipIndex) {
+                deviationSumX += Math.abs(ev.getX(i) - pointersFocusX);
+                deviationSumY += Math.abs(ev.getY(i) - pointersFocusY);
+            }
+        }
+        pointersSpan = (float) Math.hypot(deviationSumX / count * 2, deviationSumY / count * 2);
+    }
+
+    /**
+     * Detects a scale gesture once pointers span changes beyond touch slop, ending the drag and
+     * its touch nested scrolling, so nested scrolling parents are left untouched while the page
+     * is zoomed.
+     *
+     * @return Whether a scale gesture is in progress.
+     */
+    private boolean detectScaleGesture() {
+        if (!isScaleGestureInProgress
+                && Math.abs(pointersSpan - scaleGestureStartSpan) > mTouchSlop) {
+            isScaleGestureInProgress = true;
+            isScaleGestureDetected = true;
+            endDrag();
+        }
+        return isScaleGestureInProgress;
+    }
+
+    /**
+     * Resumes touch nested scrolling once a single pointer is left after a scale gesture. A new
+     * drag is started from the pointer left once it exceeds touch slop again.
+     */
+    private void resumeNestedScrollingAfterScaleGesture() {
+        isScaleGestureInProgress = false;
+        mVelocityTracker.clear();
+        startTouchNestedScroll();
+    }
+
+    private int getTouchSlopDirection(int deltaY) {
+        if (Math.abs(deltaY) > mTouchSlop) {
+            return deltaY > 0 ? 1 : -1;
+        }
+        return 0;
+    }
+
+    /**
+     * Walks all samples batched into a move event, oldest first, looking for the first one
+     * exceeding the touch slop. Whole batch deltas are then dispatched at once, so a single
+     * nested pre scroll and scroll pair is performed for the event.
+     *
+     * @param ev The move event.
+     * @param pointerIndex The index of the active pointer in the event.
+     * @param glowConsumedY The amount of the event delta already consumed by edge glows.
+     * @return 1 or -1 depending on the direction of the first sample exceeding the touch slop,
+     * or 0 if none of them exceeded it.
+     */
+    private int getBatchedTouchSlopDirection(@NonNull MotionEvent ev, int pointerIndex,
+                                             int glowConsumedY) {
+        final int historySize = ev.getHistorySize();
+        for (int h = 0; h < historySize; h++) {
+            final int historicalDeltaY =
+                    mLastMotionY - (int) ev.getHistoricalY(pointerIndex, h) - glowConsumedY;
+            final int direction = getTouchSlopDirection(historicalDeltaY);
+            if (direction != 0) {
+                return direction;
+            }
+        }
+        return getTouchSlopDirection(mLastMotionY - (int) ev.getY(pointerIndex) - glowConsumedY);
+    }
+
+    /**
+     * Once the page can't consume the fling scroll anymore, its remaining velocity is handed off
+     * to nested scrolling parents not taking part in non touch nested scrolling, such as
+     * {@link android.widget.ScrollView}, which never received the fling frames, so these can
+     * fling by themselves instead of the fling stopping dead.
+     *
+     * Parents taking part in non touch nested scrolling (e.g. CoordinatorLayout) already
+     * refused the fling scroll on this frame, and are left untouched: a touch nested scroll
+     * session would cancel their own animations, such as AppBarLayout offset snapping.
+     *
+     * @param unconsumed The scroll left unconsumed on current frame, giving fling direction.
+     */
+    private void handOffFlingVelocity(int unconsumed) {
+        if (!flingVelocityHandOffEnabled || hasNestedScrollingParent(ViewCompat.TYPE_NON_TOUCH)) {
+            return;
+        }
+        final float velocityY = Math.copySign(mScroller.getCurrVelocity(), (float) unconsumed);
+        // Nested fling dispatch only reaches touch nested scrolling parents.
+        final boolean startedTouchNestedScroll = !hasNestedScrollingParent(ViewCompat.TYPE_TOUCH)
+                && startNestedScroll(ViewCompat.SCROLL_AXIS_VERTICAL, ViewCompat.TYPE_TOUCH);
+        if (!dispatchNestedPreFling(0, velocityY)) {
+            dispatchNestedFling(0, velocityY, false);
+        }
+        if (startedTouchNestedScroll) {
+            stopNestedScroll(ViewCompat.TYPE_TOUCH);
+        }
+    }
+
+    /**
+     * Tells the external nested scroll dispatcher, if any, the velocity left once neither the
+     * page nor its parents consume the fling scroll anymore, so it is passed to them when the
+     * fling nested scroll stops, instead of the initial one.
+     *
+     * @param unconsumed The scroll left unconsumed on current frame, giving fling direction.
+     */
+    private void dispatchRemainingFlingVelocity(int unconsumed) {
+        if (externalNestedScrollDispatcher != null) {
+            externalNestedScrollDispatcher.dispatchRemainingFlingVelocity(0,
+                    Math.copySign(mScroller.getCurrVelocity(), (float) unconsumed));
         }
     }
 
@@ -449,7 +1044,14 @@ public class NestedScrollWebView extends WebView implements NestedScrollingChild
 
     private void abortAnimatedScroll() {
         mScroller.abortAnimation();
+        smoothScrollTargetY = NO_SMOOTH_SCROLL_TARGET;
+        isWheelScrollRunning = false;
         stopNestedScroll(ViewCompat.TYPE_NON_TOUCH);
+        if (scrollGestureMetricsTracker != null) {
+            scrollGestureMetricsTracker.onFlingEnded();
+        }
+        // Not present on NestedScrollView code.
+        notifyScrollInProgress();
     }
 
     /**
@@ -486,17 +1088,32 @@ public class NestedScrollWebView extends WebView implements NestedScrollingChild
         return pixelsConsumed;
     }
 
-    @SuppressWarnings({"SameParameterValue", "unused"})
+    @SuppressWarnings("SameParameterValue")
     boolean overScrollByCompat(int deltaX, int deltaY,
                                int scrollX, int scrollY,
                                int scrollRangeX, int scrollRangeY,
                                int maxOverScrollX, int maxOverScrollY,
                                boolean isTouchEvent) {
+        ScrollTracing.beginSection(ScrollTracing.SECTION_OVER_SCROLL_BY);
+        try {
+            return performOverScrollBy(deltaX, deltaY, scrollX, scrollY, scrollRangeX,
+                    scrollRangeY, maxOverScrollX, maxOverScrollY, isTouchEvent);
+        } finally {
+            ScrollTracing.endSection();
+        }
+    }
+
+    @SuppressWarnings("unused")
+    private boolean performOverScrollBy(int deltaX, int deltaY,
+                                        int scrollX, int scrollY,
+                                        int scrollRangeX, int scrollRangeY,
+                                        int maxOverScrollX, int maxOverScrollY,
+                                        boolean isTouchEvent) {
         final int overScrollMode = getOverScrollMode();
-        final boolean canScrollHorizontal =
-                computeHorizontalScrollRange() > computeHorizontalScrollExtent();
-        final boolean canScrollVertical =
-                computeVerticalScrollRange() > computeVerticalScrollExtent();
+        // Not present on NestedScrollView code. Scroll metrics are read from cache.
+        refreshScrollMetricsIfNeeded();
+        final boolean canScrollHorizontal = cachedCanScrollHorizontal;
+        final boolean canScrollVertical = cachedCanScrollVertical;
         final boolean overScrollHorizontal = overScrollMode == OVER_SCROLL_ALWAYS
                 || (overScrollMode == OVER_SCROLL_IF_CONTENT_SCROLLS && canScrollHorizontal);
         final boolean overScrollVertical = overScrollMode == OVER_SCROLL_ALWAYS
@@ -531,6 +1148,9 @@ public class NestedScrollWebView extends WebView implements NestedScrollingChild
         if (newScrollY > bottom) {
             newScrollY = bottom;
             clampedY = true;
+            /* Not present on NestedScrollView code. Reaching the bottom limit may be caused by
+            outdated scroll metrics if content grew, so these are computed again on next access. */
+            invalidateScrollMetrics();
         } else if (newScrollY < top) {
             newScrollY = top;
             clampedY = true;
@@ -568,33 +1188,199 @@ public class NestedScrollWebView extends WebView implements NestedScrollingChild
         // WebView always returns no children
         //if (getChildCount() > 0) {
 
+            /* Not present on NestedScrollView code. On range bounded fling mode, fling is
+            limited to the page scroll range plus the distance nested parents can still consume,
+            not starting it at all if there is nothing left to move. */
+            int minY = Integer.MIN_VALUE;
+            int maxY = Integer.MAX_VALUE;
+            if (rangeBoundedFlingEnabled) {
+                // Page may have grown during the drag, so its scroll range is queried again.
+                invalidateScrollMetrics();
+                final int scrollY = getScrollY();
+                final int expandableDistance =
+                        coordinatorLayoutChildHelper.getNestedScrollableDistance(-1);
+                final int collapsableDistance =
+                        coordinatorLayoutChildHelper.getNestedScrollableDistance(1);
+                if (expandableDistance != CoordinatorLayoutChildHelper.UNKNOWN_NESTED_SCROLL_DISTANCE) {
+                    minY = Math.min(scrollY, -expandableDistance);
+                }
+                if (collapsableDistance != CoordinatorLayoutChildHelper.UNKNOWN_NESTED_SCROLL_DISTANCE) {
+                    maxY = Math.max(scrollY, getMaxScrollY() + collapsableDistance);
+                }
+                if ((velocityY > 0 && scrollY >= maxY) || (velocityY < 0 && scrollY <= minY)) {
+                    return;
+                }
+            }
+
             mScroller.fling(getScrollX(), getScrollY(), // start
                     0, velocityY, // velocities
                     0, 0, // x
-                    Integer.MIN_VALUE, Integer.MAX_VALUE, // y
+                    minY, maxY, // y
                     0, 0); // overscroll
             runAnimatedScroll(true);
         //}
     }
 
     private void runAnimatedScroll(boolean participateInNestedScrolling) {
+        smoothScrollTargetY = NO_SMOOTH_SCROLL_TARGET;
+        isWheelScrollRunning = false;
         if (participateInNestedScrolling) {
             startNestedScroll(ViewCompat.SCROLL_AXIS_VERTICAL, ViewCompat.TYPE_NON_TOUCH);
         } else {
             stopNestedScroll(ViewCompat.TYPE_NON_TOUCH);
         }
         mLastScrollerY = getScrollY();
+        final float refreshRate = getDisplayRefreshRate();
+        final float flingFrameRate = getFlingFrameRate(refreshRate);
+        // Half a display frame is given as margin, so frame timing jitter does not skip frames.
+        flingFrameIntervalMillis = flingFrameRate < refreshRate
+                ? (long) (1000f / flingFrameRate - 500f / refreshRate)
+                : 0;
+        lastFlingFrameTime = 0;
+        if (scrollGestureMetricsTracker != null) {
+            scrollGestureMetricsTracker.onFlingStarted(flingFrameRate);
+        }
+        notifyScrollInProgress();
         ViewCompat.postInvalidateOnAnimation(this);
     }
 
+    /**
+     * Like {@link #scrollBy}, but scroll smoothly instead of immediately.
+     *
+     * @param dx the number of pixels to scroll by on the X axis
+     * @param dy the number of pixels to scroll by on the Y axis
+     */
+    public final void smoothScrollBy(int dx, int dy) {
+        smoothScrollBy(dx, dy, DEFAULT_SMOOTH_SCROLL_DURATION);
+    }
+
+    /**
+     * Like {@link #scrollBy}, but scroll smoothly instead of immediately.
+     *
+     * @param dx the number of pixels to scroll by on the X axis
+     * @param dy the number of pixels to scroll by on the Y axis
+     * @param scrollDurationMs the duration of the smooth scroll operation in milliseconds
+     */
+    public final void smoothScrollBy(int dx, int dy, int scrollDurationMs) {
+        // WebView always returns no children
+        /*
+        if (getChildCount() == 0) {
+            // Nothing to do.
+            return;
+        }
+        */
+        /* Not present on NestedScrollView code. Smooth scrolls always take part in nested
+        scrolling, and are always animated even if requested right after a previous one, as
+        scrolling immediately would skip nested scrolling parents. Scroll is extended by the
+        distance app bars can collapse on the way, or expand when scrolling to the top. Content
+        height may have changed since scroll metrics were cached, as these are not refreshed while
+        page loads, so these are queried again. */
+        invalidateScrollMetrics();
+        final int scrollY = getScrollY();
+        final int targetY = Math.max(0, Math.min(scrollY + dy, getMaxScrollY()));
+        final int scrollerDeltaY = targetY - scrollY + getSmoothScrollNestedDistance(targetY, dy);
+        if (!mScroller.isFinished()) {
+            abortAnimatedScroll();
+        }
+        if (scrollerDeltaY == 0) {
+            return;
+        }
+        mScroller.startScroll(getScrollX(), scrollY, 0, scrollerDeltaY, scrollDurationMs);
+        runAnimatedScroll(true);
+        smoothScrollTargetY = targetY;
+        smoothScrollLegStartY = scrollY;
+    }
+
+    /**
+     * Like {@link #scrollTo}, but scroll smoothly instead of immediately.
+     *
+     * @param x the position where to scroll on the X axis
+     * @param y the position where to scroll on the Y axis
+     */
+    public final void smoothScrollTo(int x, int y) {
+        smoothScrollTo(x, y, DEFAULT_SMOOTH_SCROLL_DURATION);
+    }
+
+    /**
+     * Like {@link #scrollTo}, but scroll smoothly instead of immediately.
+     *
+     * @param x the position where to scroll on the X axis
+     * @param y the position where to scroll on the Y axis
+     * @param scrollDurationMs the duration of the smooth scroll operation in milliseconds
+     */
+    public final void smoothScrollTo(int x, int y, int scrollDurationMs) {
+        smoothScrollBy(x - getScrollX(), y - getScrollY(), scrollDurationMs);
+    }
+
+    /**
+     * Smooth scroll distance is extended by the distance app bars can collapse or expand, assuming
+     * nested scrolling parents consume it before the page. Page movement is clamped to the smooth
+     * scroll target, so it is not overshot if parents consume it after the page, or not at all.
+     */
+    private int clampToSmoothScrollTarget(int deltaY, int scrollY) {
+        if (smoothScrollTargetY == NO_SMOOTH_SCROLL_TARGET) {
+            return deltaY;
+        }
+        final int targetDeltaY = smoothScrollTargetY - scrollY;
+        return deltaY > 0
+                ? Math.max(0, Math.min(deltaY, targetDeltaY))
+                : Math.min(0, Math.max(deltaY, targetDeltaY));
+    }
+
+    private int getSmoothScrollNestedDistance(int targetY, int dy) {
+        final int direction;
+        if (dy > 0) {
+            direction = 1;
+        } else if (dy < 0 && targetY == 0) {
+            direction = -1;
+        } else {
+            return 0;
+        }
+        final int nestedDistance = coordinatorLayoutChildHelper.getNestedScrollableDistance(direction);
+        return nestedDistance != CoordinatorLayoutChildHelper.UNKNOWN_NESTED_SCROLL_DISTANCE
+                ? direction * nestedDistance
+                : 0;
+    }
+
+    /**
+     * Once a smooth scroll leg finishes short of its page target, as nested scrolling parents
+     * consumed more than expected, a new leg is started for the remaining distance. Smooth scroll
+     * ends once a leg does not move the page at all.
+     *
+     * @return True if a new leg was started.
+     */
+    private boolean continueSmoothScrollIfNeeded() {
+        if (smoothScrollTargetY == NO_SMOOTH_SCROLL_TARGET) {
+            return false;
+        }
+        final int scrollY = getScrollY();
+        final int remainingY = Math.min(smoothScrollTargetY, getMaxScrollY()) - scrollY;
+        if (remainingY == 0 || scrollY == smoothScrollLegStartY) {
+            smoothScrollTargetY = NO_SMOOTH_SCROLL_TARGET;
+            return false;
+        }
+        smoothScrollLegStartY = scrollY;
+        mScroller.startScroll(getScrollX(), scrollY, 0, remainingY, DEFAULT_SMOOTH_SCROLL_DURATION);
+        mLastScrollerY = scrollY;
+        return true;
+    }
+
     private void endDrag() {
         mIsBeingDragged = false;
+        lockedScrollAxis = ViewCompat.SCROLL_AXIS_NONE;
 
-        recycleVelocityTracker();
+        /* Not present on NestedScrollView code. Velocity tracker is kept for the whole view
+        lifetime and just cleared between gestures, it is only recycled when detached. */
+        if (mVelocityTracker != null) {
+            mVelocityTracker.clear();
+        }
         stopNestedScroll(ViewCompat.TYPE_TOUCH);
+        notifyScrollInProgress();
 
-        mEdgeGlowTop.onRelease();
-        mEdgeGlowBottom.onRelease();
+        if (mEdgeGlowTop != null && mEdgeGlowBottom != null) {
+            mEdgeGlowTop.onRelease();
+            mEdgeGlowBottom.onRelease();
+        }
     }
 
     private void recycleVelocityTracker() {
@@ -610,9 +1396,23 @@ public class NestedScrollWebView extends WebView implements NestedScrollingChild
         if (pointerId == mActivePointerId) {
             // This was our active pointer going up. Choose a new
             // active pointer and adjust accordingly.
-            // TODO: Make this decision more intelligent.
-            final int newPointerIndex = pointerIndex == 0 ? 1 : 0;
+            /* Not present on NestedScrollView code. The pointer closest to last motion is
+            chosen, so motion goes on from where it was. */
+            int newPointerIndex = -1;
+            float newPointerDistance = Float.MAX_VALUE;
+            for (int i = 0; i < ev.getPointerCount(); i++) {
+                if (i == pointerIndex) {
+                    continue;
+                }
+                final float distance = (float) Math.hypot(ev.getX(i) - mLastMotionX,
+                        ev.getY(i) - mLastMotionY);
+                if (distance < newPointerDistance) {
+                    newPointerIndex = i;
+                    newPointerDistance = distance;
+                }
+            }
             mLastMotionY = (int) ev.getY(newPointerIndex);
+            mLastMotionX = (int) ev.getX(newPointerIndex);
             mActivePointerId = ev.getPointerId(newPointerIndex);
             if (mVelocityTracker != null) {
                 mVelocityTracker.clear();
@@ -620,11 +1420,22 @@ public class NestedScrollWebView extends WebView implements NestedScrollingChild
         }
     }
 
+    /* Not present on NestedScrollView code. While an external nested scroll dispatcher is set,
+    nested scrolling is dispatched to it instead of nested scrolling parents. */
+
     // NestedScrollingChild3
 
     @Override
     public void dispatchNestedScroll(int dxConsumed, int dyConsumed, int dxUnconsumed,
                                      int dyUnconsumed, @Nullable int[] offsetInWindow, int type, @NonNull int[] consumed) {
+        if (scrollGestureMetricsTracker != null) {
+            scrollGestureMetricsTracker.onNestedDispatch();
+        }
+        if (externalNestedScrollDispatcher != null) {
+            externalNestedScrollDispatcher.dispatchNestedScroll(dxConsumed, dyConsumed,
+                    dxUnconsumed, dyUnconsumed, offsetInWindow, type, consumed);
+            return;
+        }
         mChildHelper.dispatchNestedScroll(dxConsumed, dyConsumed, dxUnconsumed, dyUnconsumed,
                 offsetInWindow, type, consumed);
     }
@@ -633,22 +1444,40 @@ public class NestedScrollWebView extends WebView implements NestedScrollingChild
 
     @Override
     public boolean startNestedScroll(int axes, int type) {
+        if (externalNestedScrollDispatcher != null) {
+            return isNestedScrollingEnabled()
+                    && externalNestedScrollDispatcher.startNestedScroll(axes, type);
+        }
         return mChildHelper.startNestedScroll(axes, type);
     }
 
     @Override
     public void stopNestedScroll(int type) {
+        if (externalNestedScrollDispatcher != null) {
+            externalNestedScrollDispatcher.stopNestedScroll(type);
+            return;
+        }
         mChildHelper.stopNestedScroll(type);
     }
 
     @Override
     public boolean hasNestedScrollingParent(int type) {
+        if (externalNestedScrollDispatcher != null) {
+            return externalNestedScrollDispatcher.hasNestedScrollingParent(type);
+        }
         return mChildHelper.hasNestedScrollingParent(type);
     }
 
     @Override
     public boolean dispatchNestedScroll(int dxConsumed, int dyConsumed, int dxUnconsumed,
                                         int dyUnconsumed, @Nullable int[] offsetInWindow, int type) {
+        if (scrollGestureMetricsTracker != null) {
+            scrollGestureMetricsTracker.onNestedDispatch();
+        }
+        if (externalNestedScrollDispatcher != null) {
+            return externalNestedScrollDispatcher.dispatchNestedScroll(dxConsumed, dyConsumed,
+                    dxUnconsumed, dyUnconsumed, offsetInWindow, type, null);
+        }
         return mChildHelper.dispatchNestedScroll(dxConsumed, dyConsumed, dxUnconsumed, dyUnconsumed,
                 offsetInWindow, type);
     }
@@ -656,6 +1485,13 @@ public class NestedScrollWebView extends WebView implements NestedScrollingChild
     @Override
     public boolean dispatchNestedPreScroll(int dx, int dy, @Nullable int[] consumed,
                                            @Nullable int[] offsetInWindow, int type) {
+        if (scrollGestureMetricsTracker != null) {
+            scrollGestureMetricsTracker.onNestedDispatch();
+        }
+        if (externalNestedScrollDispatcher != null) {
+            return externalNestedScrollDispatcher.dispatchNestedPreScroll(dx, dy, consumed,
+                    offsetInWindow, type);
+        }
         return mChildHelper.dispatchNestedPreScroll(dx, dy, consumed, offsetInWindow, type);
     }
 
@@ -689,6 +1525,10 @@ public class NestedScrollWebView extends WebView implements NestedScrollingChild
     @Override
     public boolean dispatchNestedScroll(int dxConsumed, int dyConsumed, int dxUnconsumed,
                                         int dyUnconsumed, @Nullable int[] offsetInWindow) {
+        if (externalNestedScrollDispatcher != null) {
+            return dispatchNestedScroll(dxConsumed, dyConsumed, dxUnconsumed, dyUnconsumed,
+                    offsetInWindow, ViewCompat.TYPE_TOUCH);
+        }
         return mChildHelper.dispatchNestedScroll(dxConsumed, dyConsumed, dxUnconsumed, dyUnconsumed,
                 offsetInWindow);
     }
@@ -701,14 +1541,148 @@ public class NestedScrollWebView extends WebView implements NestedScrollingChild
 
     @Override
     public boolean dispatchNestedFling(float velocityX, float velocityY, boolean consumed) {
+        if (externalNestedScrollDispatcher != null) {
+            return externalNestedScrollDispatcher.dispatchNestedFling(velocityX, velocityY,
+                    consumed);
+        }
         return mChildHelper.dispatchNestedFling(velocityX, velocityY, consumed);
     }
 
     @Override
     public boolean dispatchNestedPreFling(float velocityX, float velocityY) {
+        if (externalNestedScrollDispatcher != null) {
+            return externalNestedScrollDispatcher.dispatchNestedPreFling(velocityX, velocityY);
+        }
         return mChildHelper.dispatchNestedPreFling(velocityX, velocityY);
     }
 
+    @Override
+    protected void onRestoreInstanceState(Parcelable state) {
+        if (!(state instanceof SavedState)) {
+            super.onRestoreInstanceState(state);
+            return;
+        }
+
+        SavedState ss = (SavedState) state;
+        super.onRestoreInstanceState(ss.getSuperState());
+        /* Not present on NestedScrollView code. Page content is loaded again after restoring,
+        so scroll position is applied once content is tall enough, see onDraw. */
+        pendingRestoreScrollY = ss.scrollPosition > 0
+                ? ss.scrollPosition
+                : NO_PENDING_SCROLL_RESTORE;
+        // No content height matches it, so scroll metrics are queried again on next draw.
+        pendingRestoreContentHeight = NO_PENDING_SCROLL_RESTORE;
+        coordinatorLayoutChildHelper.restoreBottomMargin(ss.bottomMargin);
+    }
+
+    @NonNull
+    @Override
+    protected Parcelable onSaveInstanceState() {
+        Parcelable superState = super.onSaveInstanceState();
+        SavedState ss = new SavedState(superState);
+        ss.scrollPosition = pendingRestoreScrollY != NO_PENDING_SCROLL_RESTORE
+                ? pendingRestoreScrollY
+                : getScrollY();
+        ss.bottomMargin = coordinatorLayoutChildHelper.getBottomMargin();
+        return ss;
+    }
+
+    static class SavedState extends BaseSavedState {
+        public int scrollPosition;
+        /* Not present on NestedScrollView code. */
+        public int bottomMargin;
+
+        SavedState(Parcelable superState) {
+            super(superState);
+        }
+
+        SavedState(Parcel source) {
+            super(source);
+            scrollPosition = source.readInt();
+            bottomMargin = source.readInt();
+        }
+
+        @Override
+        public void writeToParcel(Parcel dest, int flags) {
+            super.writeToParcel(dest, flags);
+            dest.writeInt(scrollPosition);
+            dest.writeInt(bottomMargin);
+        }
+
+        @NonNull
+        @Override
+        public String toString() {
+            return "NestedScrollWebView.SavedState{"
+                    + Integer.toHexString(System.identityHashCode(this))
+                    + " scrollPosition=" + scrollPosition
+                    + " bottomMargin=" + bottomMargin + "}";
+        }
+
+        public static final Creator<SavedState> CREATOR =
+                new Creator<SavedState>() {
+            @Override
+            public SavedState createFromParcel(Parcel in) {
+                return new SavedState(in);
+            }
+
+            @Override
+            public SavedState[] newArray(int size) {
+                return new SavedState[size];
+            }
+        };
+    }
+
+    @Override
+    public void draw(@NonNull Canvas canvas) {
+        super.draw(canvas);
+        // Not present on NestedScrollView code. Edge effects only exist if overscroll is enabled.
+        if (mEdgeGlowTop == null || mEdgeGlowBottom == null) {
+            return;
+        }
+        final int scrollY = getScrollY();
+        if (!mEdgeGlowTop.isFinished()) {
+            final int restoreCount = canvas.save();
+            int width = getWidth();
+            int height = getHeight();
+            int xTranslation = 0;
+            /* Not present on NestedScrollView code. Page content is not overscrolled beyond its
+            limits, so edge effects are drawn at visible area bounds. */
+            int yTranslation = scrollY;
+            if (getClipToPadding()) {
+                width -= getPaddingLeft() + getPaddingRight();
+                xTranslation += getPaddingLeft();
+                height -= getPaddingTop() + getPaddingBottom();
+                yTranslation += getPaddingTop();
+            }
+            canvas.translate(xTranslation, yTranslation);
+            mEdgeGlowTop.setSize(width, height);
+            if (mEdgeGlowTop.draw(canvas)) {
+                ViewCompat.postInvalidateOnAnimation(this);
+            }
+            canvas.restoreToCount(restoreCount);
+        }
+        if (!mEdgeGlowBottom.isFinished()) {
+            final int restoreCount = canvas.save();
+            int width = getWidth();
+            int height = getHeight();
+            int xTranslation = 0;
+            int yTranslation = scrollY + height;
+            if (getClipToPadding()) {
+                width -= getPaddingLeft() + getPaddingRight();
+                xTranslation += getPaddingLeft();
+                height -= getPaddingTop() + getPaddingBottom();
+                yTranslation -= getPaddingBottom();
+            }
+            canvas.translate(xTranslation - width, yTranslation);
+            canvas.rotate(180, width, 0);
+            mEdgeGlowBottom.setSize(width, height);
+            if (mEdgeGlowBottom.draw(canvas)) {
+                ViewCompat.postInvalidateOnAnimation(this);
+            }
+            canvas.restoreToCount(restoreCount);
+        }
+    }
+
     /* End of NestedScrollView class code block. */
 
     /* Functions not present in original NestedScrollView implementation, but required for
@@ -726,6 +1700,12 @@ public class NestedScrollWebView extends WebView implements NestedScrollingChild
             int maxOverScrollY,
             boolean isTouchEvent
     ) {
+        // WebView content provides its current scroll ranges, any change means content resized.
+        if (scrollRangeX != lastContentScrollRangeX || scrollRangeY != lastContentScrollRangeY) {
+            lastContentScrollRangeX = scrollRangeX;
+            lastContentScrollRangeY = scrollRangeY;
+            invalidateScrollMetrics();
+        }
         if (!mIsBeingDragged) {
             overScrollByCompat(
                     deltaX,
@@ -742,13 +1722,110 @@ public class NestedScrollWebView extends WebView implements NestedScrollingChild
         return true;
     }
 
+    /**
+     * Edge effects are only created while overscroll is enabled, so nothing is allocated nor
+     * checked on touch and fling hot paths with the default OVER_SCROLL_NEVER mode. This is
+     * called from View constructor too, before this view is initialized and forces that mode.
+     */
     @Override
-    public int getNestedScrollAxes() {
-        return ViewCompat.SCROLL_AXIS_VERTICAL;
+    public void setOverScrollMode(int overScrollMode) {
+        if (overScrollMode == OVER_SCROLL_NEVER || mChildHelper == null) {
+            mEdgeGlowTop = null;
+            mEdgeGlowBottom = null;
+        } else if (mEdgeGlowTop == null || mEdgeGlowBottom == null) {
+            mEdgeGlowTop = EdgeEffectCompat.create(getContext(), null);
+            mEdgeGlowBottom = EdgeEffectCompat.create(getContext(), null);
+        }
+        super.setOverScrollMode(overScrollMode);
     }
 
     private int getScrollRange() {
-        return computeVerticalScrollRange();
+        refreshScrollMetricsIfNeeded();
+        return cachedVerticalScrollRange;
+    }
+
+    /**
+     * Scroll range and extent computations are delegated to WebView content, so these are
+     * cached and only computed again once view or content sizes change.
+     */
+    private void refreshScrollMetricsIfNeeded() {
+        if (!scrollMetricsDirty) {
+            return;
+        }
+        cachedVerticalScrollRange = computeVerticalScrollRange();
+        cachedVerticalScrollExtent = computeVerticalScrollExtent();
+        cachedCanScrollVertical = cachedVerticalScrollRange > cachedVerticalScrollExtent;
+        cachedCanScrollHorizontal =
+                computeHorizontalScrollRange() > computeHorizontalScrollExtent();
+        scrollMetricsDirty = false;
+    }
+
+    private int getMaxScrollY() {
+        refreshScrollMetricsIfNeeded();
+        return Math.max(0, cachedVerticalScrollRange - cachedVerticalScrollExtent);
+    }
+
+    private void invalidateScrollMetrics() {
+        scrollMetricsDirty = true;
+    }
+
+    /**
+     * Lets bottom matching know whether page is being dragged or flinging, so bottom margin
+     * updates can be deferred until scroll ends.
+     */
+    private void notifyScrollInProgress() {
+        coordinatorLayoutChildHelper.setScrollInProgress(mIsBeingDragged || !mScroller.isFinished());
+        notifyScrollStateChanged();
+    }
+
+    private void notifyScrollStateChanged() {
+        if (scrollStatePublisher != null) {
+            scrollStatePublisher.onStateChanged();
+        }
+    }
+
+    @NonNull
+    private NestedScrollState createScrollState() {
+        final int collapsedDistance = coordinatorLayoutChildHelper.getNestedScrollableDistance(-1);
+        // Snapshots are taken at most once per frame, and page content may have grown since
+        // scroll metrics were cached, so scroll range is queried again.
+        invalidateScrollMetrics();
+        return new NestedScrollState(
+                getScrollY(),
+                getMaxScrollY(),
+                collapsedDistance != CoordinatorLayoutChildHelper.UNKNOWN_NESTED_SCROLL_DISTANCE
+                        ? collapsedDistance
+                        : 0,
+                mIsBeingDragged,
+                !mScroller.isFinished(),
+                internalScrollDetector.isInternalScrollInProgress()
+        );
+    }
+
+    /**
+     * Restored scroll position is applied in a single step once page content is tall enough to
+     * reach it, instead of following content height while page renders. If page finishes loading
+     * without reaching it, as content reflowed or a different page was loaded, closest position
+     * is applied instead.
+     */
+    private void applyPendingScrollRestoreIfReached() {
+        if (pendingRestoreScrollY == NO_PENDING_SCROLL_RESTORE) {
+            return;
+        }
+        // Content height grows while page renders without further notifications.
+        final int contentHeight = getContentHeight();
+        if (contentHeight != pendingRestoreContentHeight) {
+            pendingRestoreContentHeight = contentHeight;
+            invalidateScrollMetrics();
+        }
+        final int maxScrollY = getMaxScrollY();
+        if (maxScrollY >= pendingRestoreScrollY) {
+            scrollTo(getScrollX(), pendingRestoreScrollY);
+            pendingRestoreScrollY = NO_PENDING_SCROLL_RESTORE;
+        } else if (contentHeight > 0 && getProgress() == PAGE_LOADED_PROGRESS) {
+            scrollTo(getScrollX(), maxScrollY);
+            pendingRestoreScrollY = NO_PENDING_SCROLL_RESTORE;
+        }
     }
 
     /* Extra functionalities */
@@ -757,34 +1834,300 @@ public class NestedScrollWebView extends WebView implements NestedScrollingChild
         coordinatorLayoutChildHelper.setBottomMatchingBehaviourEnabled(enabled);
     }
 
+    public void setCoordinatorBottomMatchingMode(@NonNull BottomMatchingMode mode) {
+        coordinatorLayoutChildHelper.setBottomMatchingMode(mode);
+    }
+
+    public void setCoordinatorBottomMatchingStep(int step) {
+        coordinatorLayoutChildHelper.setBottomMatchingStep(step);
+    }
+
     public void setBlockNestedScrollingOnInternalContentScrollsEnabled(boolean enabled) {
         internalScrollDetector.setEnabled(enabled);
     }
 
+    /**
+     * Enables a script injected into the page publishing its internally scrollable elements, so
+     * gestures over these are classified as soon as they start moving. Takes effect once a page
+     * is loaded. If the WebView implementation does not support document start scripts,
+     * {@link #injectInternalContentScrollsPageProbe()} must be called once the page is loaded.
+     */
+    public void setInternalContentScrollsPageProbeEnabled(boolean enabled) {
+        if (enabled && internalScrollPageProbe == null) {
+            internalScrollPageProbe = new InternalScrollPageProbe(this);
+            internalScrollPageProbe.install();
+        } else if (!enabled && internalScrollPageProbe != null) {
+            internalScrollPageProbe.uninstall();
+            internalScrollPageProbe = null;
+        }
+        internalScrollDetector.setPageProbe(internalScrollPageProbe);
+    }
+
+    public void injectInternalContentScrollsPageProbe() {
+        if (internalScrollPageProbe != null) {
+            internalScrollPageProbe.injectScript();
+        }
+    }
+
+    public void setBatchedTouchMovesEnabled(boolean enabled) {
+        batchedTouchMovesEnabled = enabled;
+    }
+
+    public void setTwoAxisNestedScrollingEnabled(boolean enabled) {
+        twoAxisNestedScrollingEnabled = enabled;
+    }
+
+    /**
+     * Returns the axis nested scrolling of the current or last touch gesture is locked to, or
+     * {@link ViewCompat#SCROLL_AXIS_NONE} if two axis nested scrolling did not lock it yet.
+     * Without two axis nested scrolling, gestures are always locked to the vertical axis.
+     */
+    public int getLockedScrollAxis() {
+        return lockedScrollAxis;
+    }
+
+    public void setFlingVelocityHandOffEnabled(boolean enabled) {
+        flingVelocityHandOffEnabled = enabled;
+    }
+
+    public void setWheelNestedScrollingEnabled(boolean enabled) {
+        wheelNestedScrollingEnabled = enabled;
+    }
+
+    public void setRangeBoundedFlingEnabled(boolean enabled) {
+        rangeBoundedFlingEnabled = enabled;
+    }
+
+    /**
+     * Caps fling frame rate while device power save mode is enabled.
+     *
+     * @param frameRate Maximum fling frames per second, or 0 to not cap it.
+     */
+    public void setPowerSaveFlingFrameRate(int frameRate) {
+        powerSaveFlingFrameRate = frameRate;
+    }
+
+    /**
+     * Dispatches nested scrolling to given dispatcher instead of nested scrolling parents on the
+     * view hierarchy, or back to these if null. Any running nested scrolling is stopped first.
+     */
+    public void setExternalNestedScrollDispatcher(
+            @Nullable ExternalNestedScrollDispatcher dispatcher
+    ) {
+        if (externalNestedScrollDispatcher == dispatcher) {
+            return;
+        }
+        stopNestedScroll(ViewCompat.TYPE_TOUCH);
+        stopNestedScroll(ViewCompat.TYPE_NON_TOUCH);
+        externalNestedScrollDispatcher = dispatcher;
+    }
+
+    /**
+     * Returns page scroll state, including nested scrolling parents offset. Snapshots are
+     * published at most once per frame, and only while the returned flow is collected.
+     */
+    @NonNull
+    public StateFlow<NestedScrollState> getScrollState() {
+        if (scrollStatePublisher == null) {
+            scrollStatePublisher = new ScrollStatePublisher(this::createScrollState);
+        }
+        scrollStatePublisher.schedulePublish();
+        return scrollStatePublisher.getState();
+    }
+
+    /**
+     * Smoothly scrolls the page to the top of the first element matching given CSS selector,
+     * taking part in nested scrolling. Nothing is done if no element matches.
+     */
+    public void smoothScrollToElement(@NonNull String selector) {
+        final String script = "(function() {"
+                + "var element = document.querySelector(" + JSONObject.quote(selector) + ");"
+                + "if (!element) { return null; }"
+                + "var scale = window.visualViewport ? window.visualViewport.scale : 1;"
+                + "return (element.getBoundingClientRect().top + window.scrollY)"
+                + " * window.devicePixelRatio * scale;"
+                + "})()";
+        evaluateJavascript(script, value -> {
+            if (value == null || "null".equals(value)) {
+                return;
+            }
+            try {
+                smoothScrollTo(getScrollX(), (int) Math.round(Double.parseDouble(value)));
+            } catch (NumberFormatException e) {
+                Log.w(TAG, "Unexpected element position: " + value);
+            }
+        });
+    }
+
+    /**
+     * Stops any running fling or drag, along with their nested scrolling sessions.
+     */
+    public void stopNestedScrolling() {
+        if (!mScroller.isFinished()) {
+            abortAnimatedScroll();
+        }
+        endDrag();
+        stopNestedScroll(ViewCompat.TYPE_NON_TOUCH);
+    }
+
+    /**
+     * Stops any running fling, drag and nested scrolling session, and drops cached coordinator
+     * layout references, so this instance can be reused in a different layout.
+     */
+    public void resetNestedScrollState() {
+        cancelMotionTraceReplay();
+        stopNestedScrolling();
+        recycleVelocityTracker();
+        mActivePointerId = INVALID_POINTER;
+        mNestedYOffset = 0;
+        mScrollOffset[0] = 0;
+        mScrollOffset[1] = 0;
+        mLastScrollerY = 0;
+        wheelScrollRemainderY = 0;
+        isScaleGestureInProgress = false;
+        isScaleGestureDetected = false;
+        pendingRestoreScrollY = NO_PENDING_SCROLL_RESTORE;
+        internalScrollDetector.reset();
+        coordinatorLayoutChildHelper.reset();
+        invalidateScrollMetrics();
+    }
+
+    /**
+     * Enables systrace/Perfetto sections and counters on nested scrolling hot paths of all
+     * NestedScrollWebView instances. Disabled by default.
+     */
+    public static void setTracingEnabled(boolean enabled) {
+        ScrollTracing.setEnabled(enabled);
+    }
+
+    /**
+     * Sets a listener notified with scroll performance metrics once each gesture, and the fling
+     * started by it if any, ends. Metrics are only gathered while a listener is set.
+     */
+    public void setOnScrollGestureMetricsListener(@Nullable OnScrollGestureMetricsListener listener) {
+        scrollGestureMetricsTracker = listener != null
+                ? new ScrollGestureMetricsTracker(listener)
+                : null;
+    }
+
+    private float getDisplayRefreshRate() {
+        final Display display = ViewCompat.getDisplay(this);
+        return display != null ? display.getRefreshRate() : DEFAULT_REFRESH_RATE;
+    }
+
+    private float getFlingFrameRate(float refreshRate) {
+        if (powerSaveFlingFrameRate <= 0 || powerSaveFlingFrameRate >= refreshRate) {
+            return refreshRate;
+        }
+        final PowerManager powerManager =
+                (PowerManager) getContext().getSystemService(Context.POWER_SERVICE);
+        return powerManager != null && powerManager.isPowerSaveMode()
+                ? powerSaveFlingFrameRate
+                : refreshRate;
+    }
+
+    /**
+     * Starts recording touch events, nested scroll dispatches and fling positions into a ring
+     * buffer keeping the last given number of records. Recording does not allocate memory.
+     */
+    public void startMotionTraceRecording(int capacity) {
+        motionTraceRecorder = new MotionTraceRecorder(capacity);
+    }
+
+    /**
+     * Stops recording and returns the recorded motion trace, or null if not recording.
+     */
+    @Nullable
+    public byte[] stopMotionTraceRecording() {
+        final byte[] trace = getMotionTrace();
+        motionTraceRecorder = null;
+        return trace;
+    }
+
+    /**
+     * Returns the motion trace recorded so far, or null if not recording.
+     */
+    @Nullable
+    public byte[] getMotionTrace() {
+        return motionTraceRecorder != null ? motionTraceRecorder.getTrace() : null;
+    }
+
+    /**
+     * Replays touch events of a motion trace obtained from {@link #getMotionTrace()}, keeping
+     * original timing between events.
+     */
+    public void replayMotionTrace(@NonNull byte[] trace) {
+        cancelMotionTraceReplay();
+        motionTracePlayer = new MotionTracePlayer(this, trace);
+        motionTracePlayer.start();
+    }
+
+    public void cancelMotionTraceReplay() {
+        if (motionTracePlayer != null) {
+            motionTracePlayer.cancel();
+            motionTracePlayer = null;
+        }
+    }
+
     @Override
     protected void onAttachedToWindow() {
         super.onAttachedToWindow();
         coordinatorLayoutChildHelper.onViewAttached(this);
     }
 
+    @Override
+    protected void onDetachedFromWindow() {
+        cancelMotionTraceReplay();
+        if (scrollStatePublisher != null) {
+            scrollStatePublisher.cancel();
+        }
+        coordinatorLayoutChildHelper.onViewDetached();
+        removeCallbacks(cappedFlingFrameRunnable);
+        isCappedFlingFramePending = false;
+        recycleVelocityTracker();
+        super.onDetachedFromWindow();
+    }
+
+    @Override
+    protected void onSizeChanged(int w, int h, int oldw, int oldh) {
+        super.onSizeChanged(w, h, oldw, oldh);
+        invalidateScrollMetrics();
+    }
+
     @Override
     protected void onOverScrolled(int scrollX, int scrollY, boolean clampedX, boolean clampedY) {
         internalScrollDetector.onPageScrolled();
         super.onOverScrolled(scrollX, scrollY, clampedX, clampedY);
-        post(coordinatorLayoutChildHelper::computeBottomMarginIfNeeded);
+        coordinatorLayoutChildHelper.requestBottomMarginComputation();
     }
 
     @Override
     protected void onScrollChanged(int l, int t, int oldl, int oldt) {
         internalScrollDetector.onPageScrolled();
+        ScrollTracing.setCounter(ScrollTracing.COUNTER_SCROLL_Y, t);
+        notifyScrollStateChanged();
         super.onScrollChanged(l, t, oldl, oldt);
     }
 
+    @Override
+    protected void onDraw(Canvas canvas) {
+        applyPendingScrollRestoreIfReached();
+        super.onDraw(canvas);
+    }
+
     @Override
     public boolean onTouchEvent(MotionEvent event) {
+        if (motionTraceRecorder != null) {
+            motionTraceRecorder.recordTouchEvent(event);
+        }
+        if (event.getActionMasked() == MotionEvent.ACTION_DOWN) {
+            // User took control, so any pending restored scroll position is dropped.
+            pendingRestoreScrollY = NO_PENDING_SCROLL_RESTORE;
+        }
         if (!internalScrollDetector.onTouchEvent(event)) {
             onNestedTouchEvent(event);
         }
+        notifyScrollStateChanged();
         return super.onTouchEvent(event);
     }
 }
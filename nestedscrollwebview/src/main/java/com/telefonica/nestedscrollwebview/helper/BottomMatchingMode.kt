@@ -0,0 +1,23 @@
+package com.telefonica.nestedscrollwebview.helper
+
+enum class BottomMatchingMode {
+    /**
+     * View bottom margin is updated on every frame coordinator child position changes.
+     */
+    MARGIN,
+
+    /**
+     * While coordinator child position changes, view keeps its size, leaving any extra height
+     * clipped below parent bottom, and its bottom margin is only updated once position settles
+     * or the difference exceeds the configured bottom matching step. If no step is configured,
+     * view is grown to its full height at once when it needs to grow.
+     */
+    SETTLE,
+
+    /**
+     * As [SETTLE], but while view is scrolled or flinging its bottom margin is only updated once
+     * scroll ends or the difference exceeds the configured bottom matching step, so it is resized
+     * at most twice per scroll.
+     */
+    SCROLL_END,
+}
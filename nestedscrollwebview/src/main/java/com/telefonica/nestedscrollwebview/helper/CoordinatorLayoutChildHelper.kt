@@ -1,16 +1,26 @@
 package com.telefonica.nestedscrollwebview.helper
 
+import android.view.Choreographer
 import android.view.View
 import android.view.ViewParent
 import androidx.coordinatorlayout.widget.CoordinatorLayout
+import com.google.android.material.appbar.AppBarLayout
 
-class CoordinatorLayoutChildHelper {
+class CoordinatorLayoutChildHelper : Choreographer.FrameCallback {
 
     private var lastYPosition: Int? = null
     private var coordinatorChildView: View? = null
     private var coordinatorParentView: CoordinatorLayout? = null
 
     private var isBottomMatchingBehaviourEnabled = false
+    private var isBottomMarginComputationScheduled = false
+    private var isScrollInProgress = false
+    private var bottomMatchingMode = BottomMatchingMode.MARGIN
+    private var bottomMatchingStep = 0
+    private var pendingBottomMargin: Int? = null
+
+    private val childBounds = IntArray(2)
+    private val parentBounds = IntArray(2)
 
     fun onViewAttached(view: View) {
         lastYPosition = null
@@ -30,39 +40,235 @@ class CoordinatorLayoutChildHelper {
                     childView = null
             }
         }
+        applyPendingBottomMargin()
+    }
+
+    fun onViewDetached() {
+        cancelBottomMarginComputation()
+    }
+
+    /**
+     * Clears any applied bottom margin, and drops cached coordinator references,
+     * so view can be reused under a different coordinator layout.
+     */
+    fun reset() {
+        cancelBottomMarginComputation()
+        if (isBottomMatchingBehaviourEnabled) {
+            resetBottomMargin()
+        }
+        lastYPosition = null
+        pendingBottomMargin = null
+        isScrollInProgress = false
+        coordinatorChildView = null
+        coordinatorParentView = null
     }
 
     fun setBottomMatchingBehaviourEnabled(enabled: Boolean) {
         if (isBottomMatchingBehaviourEnabled && !enabled) {
             lastYPosition = null
+            cancelBottomMarginComputation()
             resetBottomMargin()
         }
         isBottomMatchingBehaviourEnabled = enabled
         computeBottomMarginIfNeeded()
     }
 
+    fun setBottomMatchingMode(mode: BottomMatchingMode) {
+        if (bottomMatchingMode != mode) {
+            lastYPosition = null
+        }
+        bottomMatchingMode = mode
+        computeBottomMarginIfNeeded()
+    }
+
+    /**
+     * Sets the bottom difference, in pixels, from which the bottom margin is updated even if
+     * coordinator child position did not settle yet. Not used by [BottomMatchingMode.MARGIN].
+     */
+    fun setBottomMatchingStep(step: Int) {
+        bottomMatchingStep = maxOf(0, step)
+    }
+
+    /**
+     * Notifies whether view is being scrolled or flinging. Once scroll ends, bottom margin
+     * updates deferred by [BottomMatchingMode.SCROLL_END] are performed.
+     */
+    fun setScrollInProgress(inProgress: Boolean) {
+        if (isScrollInProgress == inProgress) {
+            return
+        }
+        isScrollInProgress = inProgress
+        if (!inProgress && bottomMatchingMode == BottomMatchingMode.SCROLL_END) {
+            requestBottomMarginComputation()
+        }
+    }
+
+    /**
+     * Returns the bottom margin applied to match coordinator visible space, or 0 if bottom
+     * matching behaviour is disabled.
+     */
+    fun getBottomMargin(): Int {
+        if (!isBottomMatchingBehaviourEnabled) {
+            return 0
+        }
+        return (coordinatorChildView?.layoutParams as? CoordinatorLayout.LayoutParams)?.bottomMargin
+            ?: pendingBottomMargin
+            ?: 0
+    }
+
+    /**
+     * Applies a previously saved bottom margin once view is attached to its coordinator layout,
+     * so it matches coordinator visible space from the first layout.
+     */
+    fun restoreBottomMargin(bottomMargin: Int) {
+        pendingBottomMargin = bottomMargin
+        if (coordinatorChildView != null) {
+            applyPendingBottomMargin()
+        }
+    }
+
+    /**
+     * Returns the distance coordinator parent can still consume by collapsing (positive direction)
+     * or expanding (negative direction) its app bars, or [UNKNOWN_NESTED_SCROLL_DISTANCE] if view
+     * is not a coordinator layout child.
+     */
+    fun getNestedScrollableDistance(direction: Int): Int {
+        val parentView = coordinatorParentView ?: return UNKNOWN_NESTED_SCROLL_DISTANCE
+        val childView = coordinatorChildView ?: return UNKNOWN_NESTED_SCROLL_DISTANCE
+        var distance = 0
+        for (dependency in parentView.getDependencies(childView)) {
+            val appBarLayout = dependency as? AppBarLayout ?: continue
+            val behavior = (appBarLayout.layoutParams as CoordinatorLayout.LayoutParams).behavior
+                as? AppBarLayout.Behavior ?: continue
+            val offset = behavior.topAndBottomOffset
+            distance += if (direction > 0) appBarLayout.totalScrollRange + offset else -offset
+        }
+        return distance
+    }
+
+    /**
+     * Schedules a bottom margin computation on next frame. Multiple requests received before the
+     * frame is rendered are coalesced in a single computation.
+     */
+    fun requestBottomMarginComputation() {
+        if (isBottomMarginComputationScheduled || !canComputeBottomMargin()) {
+            return
+        }
+        isBottomMarginComputationScheduled = true
+        Choreographer.getInstance().postFrameCallback(this)
+    }
+
+    override fun doFrame(frameTimeNanos: Long) {
+        isBottomMarginComputationScheduled = false
+        computeBottomMarginIfNeeded()
+    }
+
     fun computeBottomMarginIfNeeded() {
-        if (coordinatorChildView == null || coordinatorParentView == null || !isBottomMatchingBehaviourEnabled) {
+        if (!canComputeBottomMargin()) {
             return
         }
 
-        val childBounds = IntArray(2)
+        ScrollTracing.trace(ScrollTracing.SECTION_BOTTOM_MARGIN) {
+            computeBottomMargin()
+        }
+    }
+
+    private fun computeBottomMargin() {
         coordinatorChildView!!.getLocationOnScreen(childBounds)
-        if (childBounds[1] != lastYPosition) {
-            val childBottom = childBounds[1] + coordinatorChildView!!.height
-            lastYPosition = childBounds[1]
-
-            val parentBounds = IntArray(2)
-            coordinatorParentView!!.getLocationOnScreen(parentBounds)
-            val parentBottom = parentBounds[1] + coordinatorParentView!!.height
-
-            val diff = childBottom - parentBottom
-            if (diff != 0) {
-                with(coordinatorChildView!!.layoutParams as CoordinatorLayout.LayoutParams) {
-                    bottomMargin += diff
-                    coordinatorChildView!!.layoutParams = this
+        val childYPosition = childBounds[1]
+        val positionChanged = childYPosition != lastYPosition
+        lastYPosition = childYPosition
+
+        when (bottomMatchingMode) {
+            BottomMatchingMode.MARGIN -> if (positionChanged) {
+                val diff = computeBottomDiff(childYPosition)
+                if (diff != 0) {
+                    updateBottomMargin(diff)
+                }
+            }
+            BottomMatchingMode.SETTLE, BottomMatchingMode.SCROLL_END -> {
+                val diff = computeBottomDiff(childYPosition)
+                if (positionChanged) {
+                    followBottomDiff(diff)
+                    // Keep checking on next frames until position settles.
+                    requestBottomMarginComputation()
+                } else if (diff != 0 && !isCommitDeferred()) {
+                    updateBottomMargin(diff)
+                }
+            }
+        }
+    }
+
+    private fun computeBottomDiff(childYPosition: Int): Int {
+        val childBottom = childYPosition + coordinatorChildView!!.height
+
+        coordinatorParentView!!.getLocationOnScreen(parentBounds)
+        val parentBottom = parentBounds[1] + coordinatorParentView!!.height
+
+        return childBottom - parentBottom
+    }
+
+    private fun followBottomDiff(diff: Int) {
+        when {
+            diff < 0 -> {
+                // Space left below the child would show parent background, so it is grown right
+                // away, leaving a step of extra height below parent bottom. With no step, it is
+                // grown to its full height at once, so it is not resized again while parent keeps
+                // moving.
+                val bottomMargin = (coordinatorChildView!!.layoutParams as CoordinatorLayout.LayoutParams)
+                    .bottomMargin
+                val maxOvershoot = maxOf(0, bottomMargin + diff)
+                val overshoot = if (bottomMatchingStep == 0) {
+                    maxOvershoot
+                } else {
+                    minOf(bottomMatchingStep, maxOvershoot)
                 }
+                updateBottomMargin(diff - overshoot)
+            }
+            bottomMatchingStep in 1 until diff ->
+                updateBottomMargin(diff)
+            // Otherwise extra height is left clipped below parent bottom until margin is updated,
+            // so page content stays attached to the child top and does not jump once it is.
+        }
+    }
+
+    private fun updateBottomMargin(diff: Int) {
+        with(coordinatorChildView!!.layoutParams as CoordinatorLayout.LayoutParams) {
+            bottomMargin = if (bottomMatchingMode == BottomMatchingMode.MARGIN) {
+                bottomMargin + diff
+            } else {
+                // Deferred modes commit differences measured while parent was still moving, which
+                // must not leave a negative margin behind.
+                maxOf(0, bottomMargin + diff)
             }
+            coordinatorChildView!!.layoutParams = this
+            ScrollTracing.setCounter(ScrollTracing.COUNTER_BOTTOM_MARGIN, bottomMargin)
+        }
+    }
+
+    private fun isCommitDeferred(): Boolean =
+        bottomMatchingMode == BottomMatchingMode.SCROLL_END && isScrollInProgress
+
+    private fun canComputeBottomMargin(): Boolean =
+        coordinatorChildView != null && coordinatorParentView != null && isBottomMatchingBehaviourEnabled
+
+    private fun cancelBottomMarginComputation() {
+        if (isBottomMarginComputationScheduled) {
+            isBottomMarginComputationScheduled = false
+            Choreographer.getInstance().removeFrameCallback(this)
+        }
+    }
+
+    private fun applyPendingBottomMargin() {
+        val bottomMargin = pendingBottomMargin ?: return
+        pendingBottomMargin = null
+        val childView = coordinatorChildView ?: return
+        if (!isBottomMatchingBehaviourEnabled) {
+            return
+        }
+        with(childView.layoutParams as CoordinatorLayout.LayoutParams) {
+            this.bottomMargin = bottomMargin
+            childView.layoutParams = this
         }
     }
 
@@ -74,4 +280,8 @@ class CoordinatorLayoutChildHelper {
             }
         }
     }
+
+    companion object {
+        const val UNKNOWN_NESTED_SCROLL_DISTANCE = -1
+    }
 }
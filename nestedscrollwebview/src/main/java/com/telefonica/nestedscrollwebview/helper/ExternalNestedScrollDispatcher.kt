@@ -0,0 +1,49 @@
+package com.telefonica.nestedscrollwebview.helper
+
+/**
+ * Receives nested scrolling dispatched by a NestedScrollWebView in place of its nested scrolling
+ * parents on the view hierarchy, so it can be bridged to other UI toolkits.
+ *
+ * Methods follow [androidx.core.view.NestedScrollingChild3] contracts, with deltas and
+ * velocities in view conventions. Offsets in window, when requested, must be filled with the
+ * view movement caused by the dispatch. Unlike nested scrolling parents on the view hierarchy, it is
+ * also told the velocity left when a fling of the view ends, through [dispatchRemainingFlingVelocity].
+ */
+interface ExternalNestedScrollDispatcher {
+
+    fun startNestedScroll(axes: Int, type: Int): Boolean
+
+    fun stopNestedScroll(type: Int)
+
+    fun hasNestedScrollingParent(type: Int): Boolean
+
+    @Suppress("LongParameterList")
+    fun dispatchNestedScroll(
+        dxConsumed: Int,
+        dyConsumed: Int,
+        dxUnconsumed: Int,
+        dyUnconsumed: Int,
+        offsetInWindow: IntArray?,
+        type: Int,
+        consumed: IntArray?,
+    ): Boolean
+
+    fun dispatchNestedPreScroll(
+        dx: Int,
+        dy: Int,
+        consumed: IntArray?,
+        offsetInWindow: IntArray?,
+        type: Int,
+    ): Boolean
+
+    fun dispatchNestedFling(velocityX: Float, velocityY: Float, consumed: Boolean): Boolean
+
+    fun dispatchNestedPreFling(velocityX: Float, velocityY: Float): Boolean
+
+    /**
+     * Called once a fling performed by the view can't be consumed anymore, neither by the view
+     * nor by the receiver, with the velocity it had left, before its non touch nested scrolling
+     * is stopped. Not called for flings coming to rest by themselves.
+     */
+    fun dispatchRemainingFlingVelocity(velocityX: Float, velocityY: Float)
+}
@@ -1,6 +1,8 @@
 package com.telefonica.nestedscrollwebview.helper
 
 import android.view.MotionEvent
+import androidx.core.view.ViewCompat
+import kotlin.math.abs
 
 class InternalScrollDetector {
 
@@ -9,8 +11,11 @@ class InternalScrollDetector {
     private var initialX: Float? = null
     private var initialY: Float? = null
     private var activePointerId: Int = INVALID_POINTER
+    private var probedScrollAxes: Int = InternalScrollPageProbe.SCROLL_AXES_UNKNOWN
+    private var isProbedInternalScroll: Boolean = false
 
     private var isEnabled = true
+    private var pageProbe: InternalScrollPageProbe? = null
 
     fun setEnabled(enabled: Boolean) {
         if (isEnabled != enabled) {
@@ -19,17 +24,33 @@ class InternalScrollDetector {
         isEnabled = enabled
     }
 
+    /**
+     * Sets a page probe used to classify gestures starting over internally scrollable page
+     * elements as soon as they move, instead of waiting for page scroll changes.
+     */
+    fun setPageProbe(probe: InternalScrollPageProbe?) {
+        pageProbe = probe
+    }
+
     fun onTouchEvent(event: MotionEvent): Boolean {
         if (!isEnabled) {
             return false
         }
 
-        return when (event.action) {
+        return ScrollTracing.trace(ScrollTracing.SECTION_INTERNAL_SCROLL_DETECTION) {
+            detectInternalScroll(event)
+        }
+    }
+
+    private fun detectInternalScroll(event: MotionEvent): Boolean =
+        when (event.action) {
             MotionEvent.ACTION_DOWN -> {
                 reset()
                 initialX = event.x
                 initialY = event.y
                 activePointerId = event.getPointerId(0)
+                probedScrollAxes = pageProbe?.getScrollableAxesAt(event.x, event.y)
+                    ?: InternalScrollPageProbe.SCROLL_AXES_UNKNOWN
                 false
             }
             MotionEvent.ACTION_MOVE -> {
@@ -47,6 +68,9 @@ class InternalScrollDetector {
                     if (!isScrolling && anyMovement) {
                         isScrolling = true
                     }
+                    if (anyMovement && probedScrollAxes != InternalScrollPageProbe.SCROLL_AXES_UNKNOWN) {
+                        isProbedInternalScroll = isScrollingProbedAxis(deltaX, deltaY)
+                    }
                     isInternalScroll()
                 }
             }
@@ -57,6 +81,23 @@ class InternalScrollDetector {
             }
             else -> false
         }
+
+    /**
+     * Returns whether current gesture is classified as an internal content scroll.
+     */
+    fun isInternalScrollInProgress(): Boolean = isEnabled && isInternalScroll()
+
+    /**
+     * Returns whether given point is over a page element scrolling along given axis, as told by
+     * the page probe. Without one, scrollable elements are only detected while touch gestures
+     * scroll them, so this returns false.
+     */
+    fun isOverInternalScroll(x: Float, y: Float, axis: Int): Boolean {
+        if (!isEnabled) {
+            return false
+        }
+        val axes = pageProbe?.getScrollableAxesAt(x, y) ?: InternalScrollPageProbe.SCROLL_AXES_UNKNOWN
+        return axes != InternalScrollPageProbe.SCROLL_AXES_UNKNOWN && (axes and axis) != 0
     }
 
     fun onPageScrolled() {
@@ -65,16 +106,36 @@ class InternalScrollDetector {
         }
     }
 
-    private fun reset() {
+    fun reset() {
         initialX = null
         initialY = null
         activePointerId = INVALID_POINTER
         isScrolling = false
         pageScrollChangedWhileScrolling = false
+        probedScrollAxes = InternalScrollPageProbe.SCROLL_AXES_UNKNOWN
+        isProbedInternalScroll = false
+    }
+
+    private fun isScrollingProbedAxis(deltaX: Float, deltaY: Float): Boolean {
+        val axis = if (abs(deltaX) > abs(deltaY)) {
+            ViewCompat.SCROLL_AXIS_HORIZONTAL
+        } else {
+            ViewCompat.SCROLL_AXIS_VERTICAL
+        }
+        return (probedScrollAxes and axis) != 0
     }
 
-    private fun isInternalScroll(): Boolean =
-        isScrolling && !pageScrollChangedWhileScrolling
+    /* When page probe answered for the touched point, gesture is classified up front from the
+    scroll axes of the touched page elements. Otherwise, any gesture is considered internal until
+    page scroll changes while scrolling. */
+    private fun isInternalScroll(): Boolean {
+        val isCandidate = if (probedScrollAxes != InternalScrollPageProbe.SCROLL_AXES_UNKNOWN) {
+            isProbedInternalScroll
+        } else {
+            isScrolling
+        }
+        return isCandidate && !pageScrollChangedWhileScrolling
+    }
 
     private companion object {
         const val INVALID_POINTER = -1
@@ -0,0 +1,251 @@
+package com.telefonica.nestedscrollwebview.helper
+
+import android.annotation.SuppressLint
+import android.webkit.JavascriptInterface
+import android.webkit.WebView
+import androidx.core.view.ViewCompat
+import androidx.webkit.ScriptHandler
+import androidx.webkit.WebViewCompat
+import androidx.webkit.WebViewFeature
+import org.json.JSONArray
+import org.json.JSONException
+import org.json.JSONObject
+import java.util.UUID
+
+/**
+ * Injects a script into the page tracking its internally scrollable elements, so touches can be
+ * classified on ACTION_DOWN without waiting for page scroll changes.
+ *
+ * The page publishes region changes incrementally, at most once per animation frame, from a
+ * JavaBridge thread. These are applied there to a [ScrollableRegionIndex] swapped for the one
+ * queried from the UI thread.
+ *
+ * Only the main frame is probed. Script and JavaScript interface reach every frame, so the script
+ * bails out on subframes, and publishes changes along with a per probe token the interface checks,
+ * ignoring calls from any other frame.
+ */
+class InternalScrollPageProbe(private val webView: WebView) {
+
+    @Volatile
+    private var regionIndex: ScrollableRegionIndex? = null
+
+    /** Regions by page element id. Only accessed from the JavaBridge thread. */
+    private val regions = HashMap<Int, FloatArray>()
+
+    private var scriptHandler: ScriptHandler? = null
+    private var isInstalled = false
+
+    private val token = UUID.randomUUID().toString()
+    private val probeScript = createProbeScript(token)
+    private val javascriptInterface = ProbeJavascriptInterface()
+
+    /**
+     * Adds the probe to the web view. Script is injected on every document start if supported by
+     * the WebView implementation, otherwise [injectScript] must be called once page is loaded.
+     * Changes take effect once a page is loaded.
+     */
+    @SuppressLint("JavascriptInterface", "AddJavascriptInterface")
+    fun install() {
+        if (isInstalled) {
+            return
+        }
+        isInstalled = true
+        webView.addJavascriptInterface(javascriptInterface, JAVASCRIPT_INTERFACE_NAME)
+        if (WebViewFeature.isFeatureSupported(WebViewFeature.DOCUMENT_START_SCRIPT)) {
+            scriptHandler = WebViewCompat.addDocumentStartJavaScript(webView, probeScript, setOf("*"))
+        }
+    }
+
+    fun uninstall() {
+        if (!isInstalled) {
+            return
+        }
+        isInstalled = false
+        scriptHandler?.remove()
+        scriptHandler = null
+        webView.removeJavascriptInterface(JAVASCRIPT_INTERFACE_NAME)
+        regionIndex = null
+    }
+
+    fun injectScript() {
+        if (isInstalled) {
+            webView.evaluateJavascript(probeScript, null)
+        }
+    }
+
+    /**
+     * Returns the scroll axes, as [ViewCompat.SCROLL_AXIS_HORIZONTAL] and
+     * [ViewCompat.SCROLL_AXIS_VERTICAL] flags, of the page scrollable elements under given view
+     * coordinates, [ViewCompat.SCROLL_AXIS_NONE] if there is none, or [SCROLL_AXES_UNKNOWN] if
+     * page did not publish its scrollable elements yet.
+     */
+    fun getScrollableAxesAt(x: Float, y: Float): Int {
+        val index = regionIndex ?: return SCROLL_AXES_UNKNOWN
+        if (index.size == 0) {
+            return ViewCompat.SCROLL_AXIS_NONE
+        }
+        return index.getScrollableAxesAt(
+            (x + webView.scrollX) / index.pixelRatio,
+            (y + webView.scrollY) / index.pixelRatio
+        )
+    }
+
+    private fun applyRegionChanges(json: String) {
+        try {
+            val changes = JSONObject(json)
+            if (changes.optBoolean("reset")) {
+                regions.clear()
+            }
+            val pixelRatio = changes.getDouble("ratio").toFloat()
+            applyRemovals(changes.getJSONArray("removals"))
+            applyUpserts(changes.getJSONArray("upserts"))
+            regionIndex = if (pixelRatio > 0f) {
+                ScrollableRegionIndex.build(pixelRatio, regions.values)
+            } else {
+                null
+            }
+        } catch (e: JSONException) {
+            regions.clear()
+            regionIndex = null
+        }
+    }
+
+    private fun applyRemovals(removals: JSONArray) {
+        for (i in 0 until removals.length()) {
+            regions.remove(removals.getInt(i))
+        }
+    }
+
+    private fun applyUpserts(upserts: JSONArray) {
+        val upsertSize = ScrollableRegionIndex.REGION_SIZE + 1
+        for (i in 0 until upserts.length() / upsertSize) {
+            val offset = i * upsertSize
+            regions[upserts.getInt(offset)] = FloatArray(ScrollableRegionIndex.REGION_SIZE) {
+                upserts.getDouble(offset + 1 + it).toFloat()
+            }
+        }
+    }
+
+    private inner class ProbeJavascriptInterface {
+        @JavascriptInterface
+        fun publishScrollableRegionChanges(token: String?, json: String) {
+            if (token == this@InternalScrollPageProbe.token) {
+                applyRegionChanges(json)
+            }
+        }
+    }
+
+    companion object {
+        const val SCROLL_AXES_UNKNOWN = -1
+
+        private const val JAVASCRIPT_INTERFACE_NAME = "NestedScrollWebViewProbe"
+
+        /* Scrollable elements are looked up on added or mutated nodes only, and tracked by id.
+        Once per animation frame, tracked elements bounds are checked again and only changed or
+        removed ones are published. Subframes coordinates are relative to their own frame, so
+        these are not probed. */
+        @Suppress("LongMethod")
+        private fun createProbeScript(token: String): String = """
+            (function () {
+              var bridge = window.$JAVASCRIPT_INTERFACE_NAME;
+              if (window !== window.top || window.__nestedScrollWebViewProbe || !bridge) return;
+              var token = '$token';
+              window.__nestedScrollWebViewProbe = true;
+              var tracked = new Map();
+              var nextId = 1;
+              var pendingRoots = [];
+              var pendingElements = [];
+              var fullScanPending = true;
+              var resetPending = true;
+              var scheduled = false;
+              var lastRatio = 0;
+              var resizeObserver = window.ResizeObserver ? new ResizeObserver(schedule) : null;
+              function scrollableAxes(element) {
+                var axes = 0;
+                if (element.scrollWidth > element.clientWidth || element.scrollHeight > element.clientHeight) {
+                  var style = getComputedStyle(element);
+                  if (element.scrollWidth > element.clientWidth &&
+                      (style.overflowX === 'auto' || style.overflowX === 'scroll')) axes |= 1;
+                  if (element.scrollHeight > element.clientHeight &&
+                      (style.overflowY === 'auto' || style.overflowY === 'scroll')) axes |= 2;
+                }
+                return axes;
+              }
+              function track(element) {
+                if (element.nodeType !== 1 || tracked.has(element) || !scrollableAxes(element)) return;
+                tracked.set(element, { id: nextId++, values: null });
+                if (resizeObserver) resizeObserver.observe(element);
+              }
+              function scan(root) {
+                if (!root || root.nodeType !== 1) return;
+                track(root);
+                var elements = root.getElementsByTagName('*');
+                for (var i = 0; i < elements.length; i++) track(elements[i]);
+              }
+              function flush() {
+                scheduled = false;
+                if (fullScanPending) {
+                  fullScanPending = false;
+                  scan(document.body);
+                } else {
+                  pendingRoots.forEach(scan);
+                  pendingElements.forEach(track);
+                }
+                pendingRoots = [];
+                pendingElements = [];
+                var upserts = [];
+                var removals = [];
+                tracked.forEach(function (entry, element) {
+                  var axes = element.isConnected ? scrollableAxes(element) : 0;
+                  if (!axes) {
+                    tracked.delete(element);
+                    if (resizeObserver) resizeObserver.unobserve(element);
+                    if (entry.values) removals.push(entry.id);
+                    return;
+                  }
+                  var rect = element.getBoundingClientRect();
+                  var values = [rect.left + window.scrollX, rect.top + window.scrollY,
+                    rect.right + window.scrollX, rect.bottom + window.scrollY, axes];
+                  if (!entry.values || values.some(function (value, i) { return value !== entry.values[i]; })) {
+                    entry.values = values;
+                    upserts.push(entry.id);
+                    Array.prototype.push.apply(upserts, values);
+                  }
+                });
+                var ratio = window.devicePixelRatio * (window.visualViewport ? window.visualViewport.scale : 1);
+                if (resetPending || upserts.length || removals.length || ratio !== lastRatio) {
+                  bridge.publishScrollableRegionChanges(token, JSON.stringify(
+                    { reset: resetPending, ratio: ratio, upserts: upserts, removals: removals }));
+                  resetPending = false;
+                  lastRatio = ratio;
+                }
+              }
+              function schedule() {
+                if (!scheduled) {
+                  scheduled = true;
+                  requestAnimationFrame(flush);
+                }
+              }
+              new MutationObserver(function (mutations) {
+                mutations.forEach(function (mutation) {
+                  if (mutation.type === 'childList') {
+                    mutation.addedNodes.forEach(function (node) { pendingRoots.push(node); });
+                  }
+                  pendingElements.push(mutation.target);
+                });
+                schedule();
+              }).observe(document, { childList: true, subtree: true, attributes: true,
+                attributeFilter: ['style', 'class'] });
+              document.addEventListener('scroll', function (event) {
+                if (event.target !== document) schedule();
+              }, { capture: true, passive: true });
+              window.addEventListener('resize', function () {
+                fullScanPending = true;
+                schedule();
+              });
+              window.addEventListener('load', schedule);
+              schedule();
+            })();
+        """.trimIndent()
+    }
+}
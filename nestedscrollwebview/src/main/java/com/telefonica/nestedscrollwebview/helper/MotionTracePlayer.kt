@@ -0,0 +1,138 @@
+package com.telefonica.nestedscrollwebview.helper
+
+import android.os.SystemClock
+import android.view.MotionEvent
+import android.view.View
+import java.nio.ByteBuffer
+
+/**
+ * Replays touch events of a trace recorded by [MotionTraceRecorder] into given view, keeping
+ * original timing between events. Replay starts from the first recorded ACTION_DOWN event.
+ */
+class MotionTracePlayer(private val view: View, trace: ByteArray) : Runnable {
+
+    private val buffer: ByteBuffer = ByteBuffer.wrap(trace)
+    private val recordsCount: Int
+    private var nextRecord = 0
+    private var firstEventTime = 0L
+    private var replayStartTime = 0L
+    private var pointerProperties: Array<MotionEvent.PointerProperties> = emptyArray()
+    private var pointerCoords: Array<MotionEvent.PointerCoords> = emptyArray()
+
+    init {
+        require(trace.size >= MotionTraceRecorder.HEADER_SIZE &&
+            buffer.getInt(0) == MotionTraceRecorder.TRACE_MAGIC &&
+            buffer.getInt(4) == MotionTraceRecorder.TRACE_VERSION
+        ) { "Unsupported motion trace format" }
+        recordsCount = minOf(
+            buffer.getInt(8),
+            (trace.size - MotionTraceRecorder.HEADER_SIZE) / MotionTraceRecorder.RECORD_SIZE
+        )
+    }
+
+    fun start() {
+        cancel()
+        nextRecord = findFirstDownRecord()
+        if (nextRecord == NO_RECORD) {
+            return
+        }
+        firstEventTime = getTime(nextRecord)
+        replayStartTime = SystemClock.uptimeMillis()
+        view.post(this)
+    }
+
+    fun cancel() {
+        view.removeCallbacks(this)
+    }
+
+    override fun run() {
+        val now = SystemClock.uptimeMillis()
+        while (nextRecord in 0 until recordsCount) {
+            if (getType(nextRecord) != MotionTraceRecorder.RECORD_TOUCH_EVENT) {
+                nextRecord++
+                continue
+            }
+            val eventTime = toReplayTime(getTime(nextRecord))
+            if (eventTime > now) {
+                view.postDelayed(this, eventTime - now)
+                return
+            }
+            nextRecord = dispatchTouchEvent(nextRecord, eventTime)
+        }
+    }
+
+    private fun dispatchTouchEvent(record: Int, eventTime: Long): Int {
+        val offset = getOffset(record)
+        val pointerCount = buffer.get(offset + 1).toInt()
+        val action = buffer.getShort(offset + 2).toInt()
+        val downTime = eventTime - buffer.getInt(offset + 12)
+        val metaState = buffer.getInt(offset + 16)
+        val source = buffer.getInt(offset + 20)
+        if (record + pointerCount >= recordsCount) {
+            return NO_RECORD
+        }
+
+        ensurePointersCapacity(pointerCount)
+        for (pointerIndex in 0 until pointerCount) {
+            val pointerOffset = getOffset(record + 1 + pointerIndex)
+            if (buffer.get(pointerOffset).toInt() != MotionTraceRecorder.RECORD_POINTER) {
+                return NO_RECORD
+            }
+            pointerProperties[pointerIndex].apply {
+                clear()
+                toolType = buffer.get(pointerOffset + 1).toInt()
+                id = buffer.getShort(pointerOffset + 2).toInt()
+            }
+            pointerCoords[pointerIndex].apply {
+                clear()
+                x = Float.fromBits(buffer.getInt(pointerOffset + 12))
+                y = Float.fromBits(buffer.getInt(pointerOffset + 16))
+                pressure = Float.fromBits(buffer.getInt(pointerOffset + 20))
+                size = 1f
+            }
+        }
+
+        val event = MotionEvent.obtain(
+            downTime, eventTime, action, pointerCount, pointerProperties, pointerCoords,
+            metaState, 0, 1f, 1f, 0, 0, source, 0
+        )
+        view.dispatchTouchEvent(event)
+        event.recycle()
+        return record + 1 + pointerCount
+    }
+
+    private fun ensurePointersCapacity(pointerCount: Int) {
+        if (pointerProperties.size < pointerCount) {
+            pointerProperties = Array(pointerCount) { MotionEvent.PointerProperties() }
+            pointerCoords = Array(pointerCount) { MotionEvent.PointerCoords() }
+        }
+    }
+
+    private fun findFirstDownRecord(): Int {
+        for (record in 0 until recordsCount) {
+            if (getType(record) == MotionTraceRecorder.RECORD_TOUCH_EVENT &&
+                (buffer.getShort(getOffset(record) + 2).toInt() and MotionEvent.ACTION_MASK) ==
+                MotionEvent.ACTION_DOWN
+            ) {
+                return record
+            }
+        }
+        return NO_RECORD
+    }
+
+    private fun toReplayTime(recordedTime: Long): Long =
+        replayStartTime + recordedTime - firstEventTime
+
+    private fun getType(record: Int): Int =
+        buffer.get(getOffset(record)).toInt()
+
+    private fun getTime(record: Int): Long =
+        buffer.getLong(getOffset(record) + 4)
+
+    private fun getOffset(record: Int): Int =
+        MotionTraceRecorder.HEADER_SIZE + record * MotionTraceRecorder.RECORD_SIZE
+
+    private companion object {
+        const val NO_RECORD = -1
+    }
+}
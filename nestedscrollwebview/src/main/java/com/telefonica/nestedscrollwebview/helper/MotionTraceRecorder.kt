@@ -0,0 +1,107 @@
+package com.telefonica.nestedscrollwebview.helper
+
+import android.view.MotionEvent
+import java.nio.ByteBuffer
+
+/**
+ * Records touch events, nested scroll dispatches and scroller positions into a fixed size ring
+ * buffer of fixed size binary records, without allocating while recording.
+ *
+ * Each record takes [RECORD_SIZE] bytes:
+ * type (byte), flags (byte), short value (short), time (long), three int values.
+ *
+ * A touch event is stored as a [RECORD_TOUCH_EVENT] record followed by one [RECORD_POINTER]
+ * record per pointer. Once the buffer is full, oldest records are overwritten.
+ */
+class MotionTraceRecorder(capacity: Int) {
+
+    private val buffer: ByteBuffer = ByteBuffer.allocate(maxOf(capacity, MIN_CAPACITY) * RECORD_SIZE)
+    private val recordsCapacity = buffer.capacity() / RECORD_SIZE
+    private var nextRecord = 0
+    private var recordsCount = 0
+
+    fun recordTouchEvent(event: MotionEvent) {
+        val pointerCount = event.pointerCount
+        val eventTime = event.eventTime
+        writeRecord(
+            RECORD_TOUCH_EVENT,
+            pointerCount,
+            event.action,
+            eventTime,
+            (eventTime - event.downTime).toInt(),
+            event.metaState,
+            event.source,
+        )
+        for (pointerIndex in 0 until pointerCount) {
+            writeRecord(
+                RECORD_POINTER,
+                event.getToolType(pointerIndex),
+                event.getPointerId(pointerIndex),
+                eventTime,
+                event.getX(pointerIndex).toRawBits(),
+                event.getY(pointerIndex).toRawBits(),
+                event.getPressure(pointerIndex).toRawBits(),
+            )
+        }
+    }
+
+    fun recordNestedScroll(time: Long, type: Int, parentConsumed: Int, selfConsumed: Int, unconsumed: Int) {
+        writeRecord(RECORD_NESTED_SCROLL, type, 0, time, parentConsumed, selfConsumed, unconsumed)
+    }
+
+    fun recordScroller(time: Long, scrollerY: Int, scrollY: Int, velocity: Int) {
+        writeRecord(RECORD_SCROLLER, 0, 0, time, scrollerY, scrollY, velocity)
+    }
+
+    /**
+     * Returns recorded trace, oldest records first, preceded by a [HEADER_SIZE] bytes header:
+     * magic (int), format version (int), records count (int).
+     */
+    fun getTrace(): ByteArray {
+        val trace = ByteBuffer.allocate(HEADER_SIZE + recordsCount * RECORD_SIZE)
+        trace.putInt(TRACE_MAGIC)
+        trace.putInt(TRACE_VERSION)
+        trace.putInt(recordsCount)
+        val firstRecord = (nextRecord - recordsCount + recordsCapacity) % recordsCapacity
+        for (i in 0 until recordsCount) {
+            val offset = ((firstRecord + i) % recordsCapacity) * RECORD_SIZE
+            trace.put(buffer.array(), offset, RECORD_SIZE)
+        }
+        return trace.array()
+    }
+
+    fun clear() {
+        nextRecord = 0
+        recordsCount = 0
+    }
+
+    @Suppress("LongParameterList")
+    private fun writeRecord(type: Int, flags: Int, shortValue: Int, time: Long, first: Int, second: Int, third: Int) {
+        val offset = nextRecord * RECORD_SIZE
+        buffer.put(offset, type.toByte())
+        buffer.put(offset + 1, flags.toByte())
+        buffer.putShort(offset + 2, shortValue.toShort())
+        buffer.putLong(offset + 4, time)
+        buffer.putInt(offset + 12, first)
+        buffer.putInt(offset + 16, second)
+        buffer.putInt(offset + 20, third)
+        nextRecord = (nextRecord + 1) % recordsCapacity
+        if (recordsCount < recordsCapacity) {
+            recordsCount++
+        }
+    }
+
+    companion object {
+        const val RECORD_SIZE = 24
+        const val HEADER_SIZE = 12
+        const val TRACE_MAGIC = 0x4E535754
+        const val TRACE_VERSION = 1
+
+        const val RECORD_TOUCH_EVENT = 1
+        const val RECORD_POINTER = 2
+        const val RECORD_NESTED_SCROLL = 3
+        const val RECORD_SCROLLER = 4
+
+        private const val MIN_CAPACITY = 64
+    }
+}
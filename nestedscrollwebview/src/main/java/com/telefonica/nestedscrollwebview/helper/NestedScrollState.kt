@@ -0,0 +1,32 @@
+package com.telefonica.nestedscrollwebview.helper
+
+/**
+ * Immutable snapshot of a NestedScrollWebView scroll state.
+ */
+data class NestedScrollState(
+    /** Page vertical scroll position, in pixels. */
+    val scrollY: Int,
+    /** Maximum page vertical scroll position, in pixels. */
+    val scrollRange: Int,
+    /** Distance, in pixels, nested scrolling parent app bars are currently collapsed. */
+    val nestedParentOffset: Int,
+    /** True while the page is being dragged. */
+    val isDragging: Boolean,
+    /** True while the page is flinging. */
+    val isFlinging: Boolean,
+    /** True while current gesture is scrolling an internally scrollable page element. */
+    val isInternalScroll: Boolean,
+) {
+
+    companion object {
+        @JvmField
+        val INITIAL = NestedScrollState(
+            scrollY = 0,
+            scrollRange = 0,
+            nestedParentOffset = 0,
+            isDragging = false,
+            isFlinging = false,
+            isInternalScroll = false,
+        )
+    }
+}
@@ -0,0 +1,157 @@
+package com.telefonica.nestedscrollwebview.helper
+
+import android.os.Build
+import android.webkit.WebView
+import androidx.annotation.MainThread
+import androidx.lifecycle.DefaultLifecycleObserver
+import androidx.lifecycle.LifecycleOwner
+import com.telefonica.nestedscrollwebview.NestedScrollWebView
+
+/**
+ * Limits how many registered [NestedScrollWebView] instances are active at once, e.g. when hosted
+ * in pager pages. Only the [maxActiveCount] most visible instances are kept active, pausing the
+ * rest: their scrolls and nested scrolling sessions are stopped, their page is paused and, on
+ * Android O and above, their renderer priority is waived, restoring the policy they had once
+ * resumed.
+ *
+ * Set as observer of the host lifecycle, all instances are paused while host is not resumed.
+ * WebView timers are shared by all instances of the process, including those not registered, so
+ * these are only paused while host is stopped.
+ */
+@MainThread
+class NestedScrollWebViewActivityManager @JvmOverloads constructor(
+    private val maxActiveCount: Int = DEFAULT_MAX_ACTIVE_COUNT,
+) : DefaultLifecycleObserver {
+
+    private val webViews = ArrayList<NestedScrollWebView>()
+    private val visibleWebViews = ArrayList<NestedScrollWebView>()
+    private val activeWebViews = ArrayList<NestedScrollWebView>()
+    private val rendererPriorities = HashMap<NestedScrollWebView, RendererPriority>()
+    private var isHostResumed = true
+    private var isHostStarted = true
+    private var areTimersPaused = false
+
+    /**
+     * Registers an instance, considered not visible until included on [setVisibleWebViews].
+     */
+    fun register(webView: NestedScrollWebView) {
+        if (webViews.contains(webView)) {
+            return
+        }
+        webViews.add(webView)
+        // New instances are running until paused.
+        activeWebViews.add(webView)
+        updateActiveWebViews()
+    }
+
+    /**
+     * Unregisters an instance, leaving it in its current state.
+     */
+    fun unregister(webView: NestedScrollWebView) {
+        if (!webViews.remove(webView)) {
+            return
+        }
+        visibleWebViews.remove(webView)
+        activeWebViews.remove(webView)
+        rendererPriorities.remove(webView)
+        if (webViews.isEmpty() && areTimersPaused) {
+            webView.resumeTimers()
+            areTimersPaused = false
+        } else {
+            updateActiveWebViews()
+        }
+    }
+
+    /**
+     * Sets registered instances currently visible, ordered from most to least visible. Instances
+     * are resumed in this order.
+     */
+    fun setVisibleWebViews(orderedWebViews: List<NestedScrollWebView>) {
+        visibleWebViews.clear()
+        orderedWebViews.filterTo(visibleWebViews) { webViews.contains(it) }
+        updateActiveWebViews()
+    }
+
+    override fun onStart(owner: LifecycleOwner) {
+        isHostStarted = true
+        updateTimers()
+    }
+
+    override fun onResume(owner: LifecycleOwner) {
+        isHostResumed = true
+        updateActiveWebViews()
+    }
+
+    override fun onPause(owner: LifecycleOwner) {
+        isHostResumed = false
+        updateActiveWebViews()
+    }
+
+    override fun onStop(owner: LifecycleOwner) {
+        isHostStarted = false
+        updateTimers()
+    }
+
+    override fun onDestroy(owner: LifecycleOwner) {
+        owner.lifecycle.removeObserver(this)
+        webViews.toList().forEach(::unregister)
+    }
+
+    private fun updateActiveWebViews() {
+        val activeCount = if (isHostResumed) minOf(maxActiveCount, visibleWebViews.size) else 0
+        // Instances are paused first, releasing their resources before resuming others.
+        for (index in activeWebViews.indices.reversed()) {
+            val webView = activeWebViews[index]
+            val visibleIndex = visibleWebViews.indexOf(webView)
+            if (visibleIndex == -1 || visibleIndex >= activeCount) {
+                activeWebViews.removeAt(index)
+                pause(webView)
+            }
+        }
+        for (index in 0 until activeCount) {
+            val webView = visibleWebViews[index]
+            if (!activeWebViews.contains(webView)) {
+                activeWebViews.add(webView)
+                resume(webView)
+            }
+        }
+        updateTimers()
+    }
+
+    private fun updateTimers() {
+        val webView = webViews.firstOrNull() ?: return
+        if (!isHostStarted && !areTimersPaused) {
+            webView.pauseTimers()
+            areTimersPaused = true
+        } else if (isHostStarted && areTimersPaused) {
+            webView.resumeTimers()
+            areTimersPaused = false
+        }
+    }
+
+    private fun pause(webView: NestedScrollWebView) {
+        webView.stopNestedScrolling()
+        webView.onPause()
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
+            rendererPriorities[webView] = RendererPriority(
+                webView.rendererRequestedPriority,
+                webView.rendererPriorityWaivedWhenNotVisible,
+            )
+            webView.setRendererPriorityPolicy(WebView.RENDERER_PRIORITY_WAIVED, true)
+        }
+    }
+
+    private fun resume(webView: NestedScrollWebView) {
+        val rendererPriority = rendererPriorities.remove(webView)
+        if (rendererPriority != null && Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
+            webView.setRendererPriorityPolicy(rendererPriority.priority, rendererPriority.waivedWhenNotVisible)
+        }
+        webView.onResume()
+    }
+
+    private class RendererPriority(val priority: Int, val waivedWhenNotVisible: Boolean)
+
+    private companion object {
+        const val DEFAULT_MAX_ACTIVE_COUNT = 1
+    }
+}
@@ -0,0 +1,177 @@
+package com.telefonica.nestedscrollwebview.helper
+
+import android.content.ComponentCallbacks2
+import android.content.Context
+import android.content.MutableContextWrapper
+import android.content.res.Configuration
+import android.os.Build
+import android.os.Looper
+import android.os.MessageQueue
+import android.view.ViewGroup
+import android.webkit.WebView
+import android.webkit.WebViewClient
+import androidx.annotation.MainThread
+import androidx.webkit.WebViewCompat
+import androidx.webkit.WebViewFeature
+import com.telefonica.nestedscrollwebview.NestedScrollWebView
+import java.util.WeakHashMap
+
+/**
+ * Pool of [NestedScrollWebView] instances, created while main thread is idle so WebView creation
+ * cost is not paid when layouts need them. Instances are created on a [MutableContextWrapper]
+ * over application context, which is switched to the context of the layout using them. The
+ * factory may wrap the context it receives, as the wrapper is kept by the pool.
+ *
+ * Pool is bounded to [maxSize] instances, and cleared when system runs low on memory, but not
+ * just because app UI was hidden.
+ */
+@MainThread
+class NestedScrollWebViewPool @JvmOverloads constructor(
+    context: Context,
+    private val maxSize: Int = DEFAULT_MAX_SIZE,
+    private val factory: (Context) -> NestedScrollWebView = { NestedScrollWebView(it) },
+) : ComponentCallbacks2 {
+
+    private val applicationContext: Context = context.applicationContext
+    private val pooledWebViews = ArrayDeque<NestedScrollWebView>(maxSize)
+    private val contextWrappers = WeakHashMap<NestedScrollWebView, MutableContextWrapper>()
+    private var isPrewarmScheduled = false
+
+    private val prewarmIdleHandler = MessageQueue.IdleHandler {
+        if (pooledWebViews.size < maxSize) {
+            pooledWebViews.addLast(createWebView())
+        }
+        // Only one instance is created per idle pass, keeping the handler while pool is not full.
+        isPrewarmScheduled = pooledWebViews.size < maxSize
+        isPrewarmScheduled
+    }
+
+    init {
+        applicationContext.registerComponentCallbacks(this)
+    }
+
+    /**
+     * Fills the pool up to its maximum size, creating one instance each time main thread is idle.
+     */
+    fun prewarm() {
+        if (isPrewarmScheduled || pooledWebViews.size >= maxSize) {
+            return
+        }
+        isPrewarmScheduled = true
+        Looper.myQueue().addIdleHandler(prewarmIdleHandler)
+    }
+
+    /**
+     * Returns a pooled instance, or a new one if pool is empty, bound to given context.
+     */
+    fun acquire(context: Context): NestedScrollWebView {
+        val webView = pooledWebViews.removeFirstOrNull() ?: createWebView()
+        contextWrappers.getValue(webView).baseContext = context
+        if (canReplaceWebViewClient()) {
+            (WebViewCompat.getWebViewClient(webView) as? BlankPageClient)?.restore(webView)
+        }
+        return webView
+    }
+
+    /**
+     * Returns an instance to the pool, removing it from its parent and resetting its nested
+     * scrolling state. Instances not created by this pool, or exceeding its size, are destroyed.
+     */
+    fun release(webView: NestedScrollWebView) {
+        (webView.parent as? ViewGroup)?.removeView(webView)
+        val contextWrapper = contextWrappers[webView]
+        if (contextWrapper == null || pooledWebViews.size >= maxSize) {
+            contextWrappers.remove(webView)
+            webView.destroy()
+            return
+        }
+        webView.stopLoading()
+        webView.resetNestedScrollState()
+        webView.scrollTo(0, 0)
+        // History can only be cleared once blank page navigation is committed.
+        if (canReplaceWebViewClient()) {
+            webView.webViewClient = BlankPageClient(WebViewCompat.getWebViewClient(webView))
+            webView.loadUrl(BLANK_URL)
+        } else {
+            // Client set by the app can't be read back to be restored, so history is cleared
+            // right away, on a best effort basis.
+            webView.loadUrl(BLANK_URL)
+            webView.clearHistory()
+        }
+        contextWrapper.baseContext = applicationContext
+        pooledWebViews.addLast(webView)
+    }
+
+    /**
+     * Destroys all pooled instances.
+     */
+    fun clear() {
+        while (pooledWebViews.isNotEmpty()) {
+            val webView = pooledWebViews.removeFirst()
+            contextWrappers.remove(webView)
+            webView.destroy()
+        }
+    }
+
+    /**
+     * Destroys all pooled instances, and stops listening for memory trim requests.
+     */
+    fun destroy() {
+        if (isPrewarmScheduled) {
+            isPrewarmScheduled = false
+            Looper.myQueue().removeIdleHandler(prewarmIdleHandler)
+        }
+        applicationContext.unregisterComponentCallbacks(this)
+        clear()
+    }
+
+    override fun onTrimMemory(level: Int) {
+        // Going to background alone keeps pooled instances, as these are wanted back on return.
+        if (level >= ComponentCallbacks2.TRIM_MEMORY_RUNNING_LOW &&
+            level != ComponentCallbacks2.TRIM_MEMORY_UI_HIDDEN
+        ) {
+            clear()
+        }
+    }
+
+    override fun onConfigurationChanged(newConfig: Configuration) = Unit
+
+    @Deprecated("Deprecated in Java")
+    override fun onLowMemory() {
+        clear()
+    }
+
+    private fun createWebView(): NestedScrollWebView {
+        val contextWrapper = MutableContextWrapper(applicationContext)
+        return factory(contextWrapper).also { webView ->
+            contextWrappers[webView] = contextWrapper
+        }
+    }
+
+    private fun canReplaceWebViewClient(): Boolean =
+        Build.VERSION.SDK_INT >= Build.VERSION_CODES.O ||
+            WebViewFeature.isFeatureSupported(WebViewFeature.GET_WEB_VIEW_CLIENT)
+
+    /**
+     * Clears history of a released instance once its blank page finished loading, restoring the
+     * client it had before. Client is also restored if instance is acquired again before that.
+     */
+    private class BlankPageClient(private val previousClient: WebViewClient) : WebViewClient() {
+
+        override fun onPageFinished(view: WebView, url: String?) {
+            if (url == BLANK_URL) {
+                view.clearHistory()
+                restore(view)
+            }
+        }
+
+        fun restore(view: WebView) {
+            view.webViewClient = previousClient
+        }
+    }
+
+    private companion object {
+        const val DEFAULT_MAX_SIZE = 2
+        const val BLANK_URL = "about:blank"
+    }
+}
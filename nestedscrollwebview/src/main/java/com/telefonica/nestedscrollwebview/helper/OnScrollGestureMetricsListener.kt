@@ -0,0 +1,8 @@
+package com.telefonica.nestedscrollwebview.helper
+
+fun interface OnScrollGestureMetricsListener {
+    /**
+     * Called once a gesture ends, or once its fling ends if a fling was started.
+     */
+    fun onScrollGestureMetrics(metrics: ScrollGestureMetrics)
+}
@@ -0,0 +1,76 @@
+package com.telefonica.nestedscrollwebview.helper
+
+/**
+ * Scroll performance metrics of a single gesture, including the fling started when it ends.
+ *
+ * Instances are reused between gestures, so values are only valid during the
+ * [OnScrollGestureMetricsListener.onScrollGestureMetrics] call.
+ */
+class ScrollGestureMetrics {
+
+    /** Total scrolled distance, in pixels, either consumed or not. */
+    var totalDistance: Int = 0
+        private set
+
+    /** Distance, in pixels, consumed by nested scrolling parents. */
+    var parentConsumedDistance: Int = 0
+        private set
+
+    /** Distance, in pixels, consumed by the page itself. */
+    var selfConsumedDistance: Int = 0
+        private set
+
+    /** Number of nested pre scroll and scroll dispatches. */
+    var nestedDispatchCount: Int = 0
+        private set
+
+    /** Duration of the fling, in milliseconds, or 0 if no fling was started. */
+    var flingDurationMillis: Long = 0
+        private set
+
+    /** Number of frames animated by the fling. */
+    var flingFrameCount: Int = 0
+        private set
+
+    /** Number of frames missed by the fling, based on display refresh rate. */
+    var missedFrameCount: Int = 0
+        private set
+
+    internal fun onScrollStep(delta: Int, parentConsumed: Int, selfConsumed: Int) {
+        totalDistance += Math.abs(delta)
+        parentConsumedDistance += Math.abs(parentConsumed)
+        selfConsumedDistance += Math.abs(selfConsumed)
+    }
+
+    internal fun onNestedDispatch() {
+        nestedDispatchCount++
+    }
+
+    internal fun onFlingFrame(missedFrames: Int) {
+        flingFrameCount++
+        missedFrameCount += missedFrames
+    }
+
+    internal fun onFlingEnded(durationMillis: Long) {
+        flingDurationMillis = durationMillis
+    }
+
+    internal fun reset() {
+        totalDistance = 0
+        parentConsumedDistance = 0
+        selfConsumedDistance = 0
+        nestedDispatchCount = 0
+        flingDurationMillis = 0
+        flingFrameCount = 0
+        missedFrameCount = 0
+    }
+
+    override fun toString(): String =
+        "ScrollGestureMetrics(totalDistance=$totalDistance, " +
+            "parentConsumedDistance=$parentConsumedDistance, " +
+            "selfConsumedDistance=$selfConsumedDistance, " +
+            "nestedDispatchCount=$nestedDispatchCount, " +
+            "flingDurationMillis=$flingDurationMillis, " +
+            "flingFrameCount=$flingFrameCount, " +
+            "missedFrameCount=$missedFrameCount)"
+}
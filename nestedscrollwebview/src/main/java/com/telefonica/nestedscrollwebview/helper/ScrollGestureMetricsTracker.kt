@@ -0,0 +1,83 @@
+package com.telefonica.nestedscrollwebview.helper
+
+import android.view.animation.AnimationUtils
+
+/**
+ * Gathers [ScrollGestureMetrics] of touch gestures and flings, reporting them once finished.
+ * Metrics are gathered in primitive fields of a single reused instance.
+ */
+class ScrollGestureMetricsTracker(private val listener: OnScrollGestureMetricsListener) {
+
+    private val metrics = ScrollGestureMetrics()
+    private var isTracking = false
+    private var isFlinging = false
+    private var flingStartTime = 0L
+    private var lastFrameTime = 0L
+    private var frameIntervalMillis = DEFAULT_FRAME_INTERVAL_MILLIS
+
+    fun onTouchGestureStarted() {
+        metrics.reset()
+        isTracking = true
+    }
+
+    fun onTouchGestureEnded() {
+        if (!isFlinging) {
+            report()
+        }
+    }
+
+    fun onNestedDispatch() {
+        if (isTracking) {
+            metrics.onNestedDispatch()
+        }
+    }
+
+    fun onScrollStep(delta: Int, parentConsumed: Int, selfConsumed: Int) {
+        if (isTracking) {
+            metrics.onScrollStep(delta, parentConsumed, selfConsumed)
+        }
+    }
+
+    fun onFlingStarted(refreshRate: Float) {
+        if (!isTracking) {
+            metrics.reset()
+            isTracking = true
+        }
+        isFlinging = true
+        flingStartTime = AnimationUtils.currentAnimationTimeMillis()
+        lastFrameTime = flingStartTime
+        frameIntervalMillis = if (refreshRate > 0f) MILLIS_PER_SECOND / refreshRate else DEFAULT_FRAME_INTERVAL_MILLIS
+    }
+
+    fun onFlingFrame() {
+        if (!isFlinging) {
+            return
+        }
+        val frameTime = AnimationUtils.currentAnimationTimeMillis()
+        val elapsedFrames = Math.round((frameTime - lastFrameTime) / frameIntervalMillis)
+        lastFrameTime = frameTime
+        metrics.onFlingFrame(maxOf(0, elapsedFrames - 1))
+    }
+
+    fun onFlingEnded() {
+        if (!isFlinging) {
+            return
+        }
+        isFlinging = false
+        metrics.onFlingEnded(AnimationUtils.currentAnimationTimeMillis() - flingStartTime)
+        report()
+    }
+
+    private fun report() {
+        if (!isTracking) {
+            return
+        }
+        isTracking = false
+        listener.onScrollGestureMetrics(metrics)
+    }
+
+    private companion object {
+        const val MILLIS_PER_SECOND = 1000f
+        const val DEFAULT_FRAME_INTERVAL_MILLIS = MILLIS_PER_SECOND / 60f
+    }
+}
@@ -0,0 +1,53 @@
+package com.telefonica.nestedscrollwebview.helper
+
+import android.view.Choreographer
+import kotlinx.coroutines.flow.MutableStateFlow
+import kotlinx.coroutines.flow.StateFlow
+import kotlinx.coroutines.flow.asStateFlow
+
+/**
+ * Publishes [NestedScrollState] snapshots at most once per frame, coalescing all changes
+ * requested during it. Nothing is done while the state has no collectors.
+ */
+class ScrollStatePublisher(
+    private val snapshotFactory: () -> NestedScrollState,
+) : Choreographer.FrameCallback {
+
+    private val mutableState = MutableStateFlow(NestedScrollState.INITIAL)
+    private var isPublishScheduled = false
+
+    val state: StateFlow<NestedScrollState> = mutableState.asStateFlow()
+
+    /**
+     * Schedules a snapshot to be published on next frame, if state is being collected.
+     */
+    fun onStateChanged() {
+        if (mutableState.subscriptionCount.value > 0) {
+            schedulePublish()
+        }
+    }
+
+    /**
+     * Schedules a snapshot to be published on next frame, even if state is not collected yet.
+     */
+    fun schedulePublish() {
+        if (isPublishScheduled) {
+            return
+        }
+        isPublishScheduled = true
+        Choreographer.getInstance().postFrameCallback(this)
+    }
+
+    override fun doFrame(frameTimeNanos: Long) {
+        isPublishScheduled = false
+        // Equal snapshots are conflated by the state flow itself.
+        mutableState.value = snapshotFactory()
+    }
+
+    fun cancel() {
+        if (isPublishScheduled) {
+            isPublishScheduled = false
+            Choreographer.getInstance().removeFrameCallback(this)
+        }
+    }
+}
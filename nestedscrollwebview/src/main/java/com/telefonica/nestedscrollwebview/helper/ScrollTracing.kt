@@ -0,0 +1,70 @@
+package com.telefonica.nestedscrollwebview.helper
+
+import androidx.tracing.Trace
+
+/**
+ * Systrace/Perfetto sections and counters for nested scrolling hot paths. Disabled by default,
+ * doing nothing but a field check while disabled.
+ */
+object ScrollTracing {
+
+    const val SECTION_NESTED_TOUCH_EVENT = "NestedScrollWebView#onNestedTouchEvent"
+    const val SECTION_COMPUTE_SCROLL = "NestedScrollWebView#computeScroll"
+    const val SECTION_OVER_SCROLL_BY = "NestedScrollWebView#overScrollByCompat"
+    const val SECTION_INTERNAL_SCROLL_DETECTION = "InternalScrollDetector#onTouchEvent"
+    const val SECTION_BOTTOM_MARGIN = "CoordinatorLayoutChildHelper#computeBottomMarginIfNeeded"
+
+    const val COUNTER_SCROLL_Y = "NestedScrollWebView:scrollY"
+    const val COUNTER_NESTED_OFFSET = "NestedScrollWebView:nestedYOffset"
+    const val COUNTER_BOTTOM_MARGIN = "NestedScrollWebView:bottomMargin"
+
+    @JvmStatic
+    var isEnabled: Boolean = false
+
+    /**
+     * Nesting depth of sections begun and not ended yet, whether traced or not, with a bit per
+     * depth telling if its section was actually traced.
+     */
+    private var sectionDepth = 0
+    private var tracedSections = 0L
+
+    @JvmStatic
+    fun beginSection(name: String) {
+        if (isEnabled && Trace.isEnabled() && sectionDepth < Long.SIZE_BITS) {
+            Trace.beginSection(name)
+            tracedSections = tracedSections or (1L shl sectionDepth)
+        }
+        sectionDepth++
+    }
+
+    /**
+     * Ends the last section begun, which must be done on a finally block so sections stay
+     * balanced when an exception is thrown.
+     */
+    @JvmStatic
+    fun endSection() {
+        check(sectionDepth > 0) { "endSection called without a matching beginSection" }
+        sectionDepth--
+        // Sections begun before tracing was disabled are still ended, and only these.
+        if (sectionDepth < Long.SIZE_BITS && (tracedSections and (1L shl sectionDepth)) != 0L) {
+            Trace.endSection()
+            tracedSections = tracedSections and (1L shl sectionDepth).inv()
+        }
+    }
+
+    @JvmStatic
+    fun setCounter(name: String, value: Int) {
+        if (isEnabled && Trace.isEnabled()) {
+            Trace.setCounter(name, value)
+        }
+    }
+
+    inline fun <T> trace(name: String, block: () -> T): T {
+        beginSection(name)
+        try {
+            return block()
+        } finally {
+            endSection()
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package com.telefonica.nestedscrollwebview.helper
+
+import androidx.core.view.ViewCompat
+
+/**
+ * Immutable spatial index of page scrollable regions, answering point queries in O(log n + k),
+ * k being the number of matching regions, without allocating.
+ *
+ * Regions are sorted by top and arranged as an implicit balanced binary tree, where each node
+ * keeps the maximum bottom of its subtree, so subtrees above the queried point or starting below
+ * it are skipped.
+ */
+class ScrollableRegionIndex private constructor(
+    /** Device pixels per document CSS pixel at the time regions were published. */
+    val pixelRatio: Float,
+    private val lefts: FloatArray,
+    private val tops: FloatArray,
+    private val rights: FloatArray,
+    private val bottoms: FloatArray,
+    private val axes: IntArray,
+) {
+
+    private val subtreeMaxBottoms = FloatArray(tops.size)
+
+    init {
+        computeSubtreeMaxBottom(0, tops.size)
+    }
+
+    val size: Int
+        get() = tops.size
+
+    /**
+     * Returns the scroll axes of the regions containing given document point, in CSS pixels, or
+     * [ViewCompat.SCROLL_AXIS_NONE] if there is none.
+     */
+    fun getScrollableAxesAt(x: Float, y: Float): Int =
+        findScrollableAxes(0, tops.size, x, y)
+
+    private fun findScrollableAxes(from: Int, to: Int, x: Float, y: Float): Int {
+        if (from >= to) {
+            return ViewCompat.SCROLL_AXIS_NONE
+        }
+        val node = (from + to) ushr 1
+        if (subtreeMaxBottoms[node] <= y) {
+            return ViewCompat.SCROLL_AXIS_NONE
+        }
+        var foundAxes = findScrollableAxes(from, node, x, y)
+        if (tops[node] <= y) {
+            if (x >= lefts[node] && x < rights[node] && y < bottoms[node]) {
+                foundAxes = foundAxes or axes[node]
+            }
+            foundAxes = foundAxes or findScrollableAxes(node + 1, to, x, y)
+        }
+        return foundAxes
+    }
+
+    private fun computeSubtreeMaxBottom(from: Int, to: Int): Float {
+        if (from >= to) {
+            return Float.NEGATIVE_INFINITY
+        }
+        val node = (from + to) ushr 1
+        val maxBottom = maxOf(
+            bottoms[node],
+            maxOf(computeSubtreeMaxBottom(from, node), computeSubtreeMaxBottom(node + 1, to))
+        )
+        subtreeMaxBottoms[node] = maxBottom
+        return maxBottom
+    }
+
+    companion object {
+        /** Number of values per region: left, top, right, bottom and scroll axes. */
+        const val REGION_SIZE = 5
+
+        /**
+         * Builds an index from regions given as [REGION_SIZE] values arrays, in document CSS
+         * pixels.
+         */
+        fun build(pixelRatio: Float, regions: Collection<FloatArray>): ScrollableRegionIndex {
+            val sortedRegions = regions.sortedBy { it[1] }
+            return ScrollableRegionIndex(
+                pixelRatio,
+                FloatArray(sortedRegions.size) { sortedRegions[it][0] },
+                FloatArray(sortedRegions.size) { sortedRegions[it][1] },
+                FloatArray(sortedRegions.size) { sortedRegions[it][2] },
+                FloatArray(sortedRegions.size) { sortedRegions[it][3] },
+                IntArray(sortedRegions.size) { sortedRegions[it][4].toInt() },
+            )
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package com.telefonica.nestedscrollwebview
+
+import android.view.MotionEvent
+import androidx.test.core.app.ApplicationProvider
+import org.junit.After
+import org.junit.Assert.assertTrue
+import org.junit.Assume.assumeTrue
+import org.junit.Before
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.robolectric.RobolectricTestRunner
+import java.lang.management.ManagementFactory
+
+@RunWith(RobolectricTestRunner::class)
+class NestedScrollWebViewAllocationTest {
+
+    private val threadMXBean =
+        ManagementFactory.getThreadMXBean() as com.sun.management.ThreadMXBean
+
+    private lateinit var webView: NestedScrollWebView
+    private lateinit var downEvent: MotionEvent
+    private lateinit var upMoveEvent: MotionEvent
+    private lateinit var downMoveEvent: MotionEvent
+
+    @Before
+    fun setUp() {
+        assumeTrue(threadMXBean.isThreadAllocatedMemorySupported)
+        threadMXBean.isThreadAllocatedMemoryEnabled = true
+
+        webView = NestedScrollWebView(ApplicationProvider.getApplicationContext())
+        webView.layout(0, 0, WIDTH, HEIGHT)
+        // Events are obtained up front, so only the touch path is measured.
+        downEvent = MotionEvent.obtain(0, 0, MotionEvent.ACTION_DOWN, X, START_Y, 0)
+        upMoveEvent = MotionEvent.obtain(0, 0, MotionEvent.ACTION_MOVE, X, START_Y - MOVE_STEP, 0)
+        downMoveEvent = MotionEvent.obtain(0, 0, MotionEvent.ACTION_MOVE, X, START_Y, 0)
+    }
+
+    @After
+    fun tearDown() {
+        if (::downEvent.isInitialized) {
+            downEvent.recycle()
+            upMoveEvent.recycle()
+            downMoveEvent.recycle()
+        }
+    }
+
+    @Test
+    fun `nested touch move events do not allocate`() {
+        webView.onNestedTouchEvent(downEvent)
+        // Drag is started and lazy initializations are done before measuring.
+        dispatchMoves(WARM_UP_MOVES)
+
+        val threadId = Thread.currentThread().id
+        val allocatedBefore = threadMXBean.getThreadAllocatedBytes(threadId)
+        dispatchMoves(MEASURED_MOVES)
+        val allocated = threadMXBean.getThreadAllocatedBytes(threadId) - allocatedBefore
+
+        // Any allocation per event takes at least an object header, so less than a byte per
+        // event only leaves room for the measurement itself.
+        assertTrue(
+            "ACTION_MOVE allocated $allocated bytes over $MEASURED_MOVES events",
+            allocated < MEASURED_MOVES,
+        )
+    }
+
+    private fun dispatchMoves(count: Int) {
+        for (index in 0 until count) {
+            webView.onNestedTouchEvent(if (index % 2 == 0) upMoveEvent else downMoveEvent)
+        }
+    }
+
+    private companion object {
+        const val WIDTH = 1080
+        const val HEIGHT = 1920
+        const val X = 540f
+        const val START_Y = 1200f
+        const val MOVE_STEP = 100f
+        const val WARM_UP_MOVES = 100
+        const val MEASURED_MOVES = 10_000
+    }
+}
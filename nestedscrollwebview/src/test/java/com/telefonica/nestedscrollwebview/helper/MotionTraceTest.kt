@@ -0,0 +1,225 @@
+package com.telefonica.nestedscrollwebview.helper
+
+import android.app.Activity
+import android.content.Context
+import android.os.Looper
+import android.view.InputDevice
+import android.view.KeyEvent
+import android.view.MotionEvent
+import android.view.View
+import org.junit.After
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertThrows
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.robolectric.Robolectric
+import org.robolectric.RobolectricTestRunner
+import org.robolectric.Shadows.shadowOf
+import java.nio.ByteBuffer
+import java.time.Duration
+
+@RunWith(RobolectricTestRunner::class)
+class MotionTraceTest {
+
+    private val recordedEvents = ArrayList<MotionEvent>()
+
+    @After
+    fun tearDown() {
+        recordedEvents.forEach { it.recycle() }
+    }
+
+    @Test
+    fun `trace starts with header`() {
+        val recorder = MotionTraceRecorder(CAPACITY)
+        recorder.recordScroller(time = 10L, scrollerY = 1, scrollY = 2, velocity = 3)
+        recorder.recordNestedScroll(time = 11L, type = 1, parentConsumed = 4, selfConsumed = 5, unconsumed = 6)
+
+        val trace = ByteBuffer.wrap(recorder.getTrace())
+
+        assertEquals(MotionTraceRecorder.HEADER_SIZE + 2 * MotionTraceRecorder.RECORD_SIZE, trace.capacity())
+        assertEquals(MotionTraceRecorder.TRACE_MAGIC, trace.getInt(0))
+        assertEquals(MotionTraceRecorder.TRACE_VERSION, trace.getInt(4))
+        assertEquals(2, trace.getInt(8))
+    }
+
+    @Test
+    fun `records are written in fixed size binary format`() {
+        val recorder = MotionTraceRecorder(CAPACITY)
+        recorder.recordNestedScroll(time = 11L, type = 1, parentConsumed = 4, selfConsumed = 5, unconsumed = -6)
+
+        val trace = ByteBuffer.wrap(recorder.getTrace())
+        val offset = MotionTraceRecorder.HEADER_SIZE
+
+        assertEquals(MotionTraceRecorder.RECORD_NESTED_SCROLL, trace.get(offset).toInt())
+        assertEquals(1, trace.get(offset + 1).toInt())
+        assertEquals(11L, trace.getLong(offset + 4))
+        assertEquals(4, trace.getInt(offset + 12))
+        assertEquals(5, trace.getInt(offset + 16))
+        assertEquals(-6, trace.getInt(offset + 20))
+    }
+
+    @Test
+    fun `full ring buffer keeps newest records, oldest first`() {
+        val recorder = MotionTraceRecorder(CAPACITY)
+        repeat(CAPACITY + OVERWRITTEN_RECORDS) { index ->
+            recorder.recordScroller(time = index.toLong(), scrollerY = index, scrollY = 0, velocity = 0)
+        }
+
+        val trace = ByteBuffer.wrap(recorder.getTrace())
+
+        assertEquals(CAPACITY, trace.getInt(8))
+        for (record in 0 until CAPACITY) {
+            val offset = MotionTraceRecorder.HEADER_SIZE + record * MotionTraceRecorder.RECORD_SIZE
+            assertEquals(OVERWRITTEN_RECORDS + record, trace.getInt(offset + 12))
+        }
+    }
+
+    @Test
+    fun `cleared recorder returns empty trace`() {
+        val recorder = MotionTraceRecorder(CAPACITY)
+        recorder.recordScroller(time = 10L, scrollerY = 1, scrollY = 2, velocity = 3)
+
+        recorder.clear()
+
+        assertEquals(0, ByteBuffer.wrap(recorder.getTrace()).getInt(8))
+    }
+
+    @Test
+    fun `replayed touch events match recorded ones`() {
+        val recorder = MotionTraceRecorder(CAPACITY)
+        recordGesture(recorder)
+
+        val replayedEvents = replay(recorder.getTrace())
+
+        assertEquals(recordedEvents.size, replayedEvents.size)
+        val recordedStart = recordedEvents.first().eventTime
+        val replayedStart = replayedEvents.first().eventTime
+        recordedEvents.zip(replayedEvents).forEach { (recorded, replayed) ->
+            assertEquals(recorded.action, replayed.action)
+            assertEquals(recorded.eventTime - recordedStart, replayed.eventTime - replayedStart)
+            assertEquals(recorded.eventTime - recorded.downTime, replayed.eventTime - replayed.downTime)
+            assertEquals(recorded.metaState, replayed.metaState)
+            assertEquals(recorded.source, replayed.source)
+            assertEquals(recorded.pointerCount, replayed.pointerCount)
+            for (index in 0 until recorded.pointerCount) {
+                assertEquals(recorded.getPointerId(index), replayed.getPointerId(index))
+                assertEquals(recorded.getToolType(index), replayed.getToolType(index))
+                assertEquals(recorded.getX(index), replayed.getX(index), 0f)
+                assertEquals(recorded.getY(index), replayed.getY(index), 0f)
+                assertEquals(recorded.getPressure(index), replayed.getPressure(index), 0f)
+            }
+        }
+        replayedEvents.forEach { it.recycle() }
+    }
+
+    @Test
+    fun `replay starts from first recorded down event`() {
+        val recorder = MotionTraceRecorder(CAPACITY)
+        recorder.recordTouchEvent(obtainEvent(MotionEvent.ACTION_MOVE, 0L, Pointer(0, 100f, 100f)))
+        recordGesture(recorder)
+
+        val replayedEvents = replay(recorder.getTrace())
+
+        assertEquals(recordedEvents.size - 1, replayedEvents.size)
+        assertEquals(MotionEvent.ACTION_DOWN, replayedEvents.first().actionMasked)
+        replayedEvents.forEach { it.recycle() }
+    }
+
+    @Test
+    fun `unsupported trace is rejected`() {
+        val trace = MotionTraceRecorder(CAPACITY).getTrace()
+        ByteBuffer.wrap(trace).putInt(0, 0)
+
+        assertThrows(IllegalArgumentException::class.java) {
+            MotionTracePlayer(View(Robolectric.buildActivity(Activity::class.java).get()), trace)
+        }
+    }
+
+    /**
+     * Records a two finger gesture, interleaved with nested scroll and scroller records, which
+     * are not replayed.
+     */
+    private fun recordGesture(recorder: MotionTraceRecorder) {
+        val first = Pointer(0, 100f, 200f)
+        val second = Pointer(1, 300f, 400f)
+        recordTouchEvent(recorder, obtainEvent(MotionEvent.ACTION_DOWN, 0L, first))
+        recorder.recordNestedScroll(DOWN_TIME + 8L, type = 0, parentConsumed = 1, selfConsumed = 2, unconsumed = 0)
+        recordTouchEvent(
+            recorder,
+            obtainEvent(pointerAction(MotionEvent.ACTION_POINTER_DOWN, 1), 16L, first.movedBy(-10f), second),
+        )
+        recordTouchEvent(
+            recorder,
+            obtainEvent(MotionEvent.ACTION_MOVE, 32L, first.movedBy(-20f), second.movedBy(-15f)),
+        )
+        recorder.recordScroller(DOWN_TIME + 40L, scrollerY = 10, scrollY = 10, velocity = 100)
+        recordTouchEvent(
+            recorder,
+            obtainEvent(
+                pointerAction(MotionEvent.ACTION_POINTER_UP, 0), 48L, first.movedBy(-20f), second.movedBy(-25f),
+            ),
+        )
+        recordTouchEvent(recorder, obtainEvent(MotionEvent.ACTION_UP, 64L, second.movedBy(-30f)))
+    }
+
+    private fun recordTouchEvent(recorder: MotionTraceRecorder, event: MotionEvent) {
+        recorder.recordTouchEvent(event)
+        recordedEvents.add(event)
+    }
+
+    private fun replay(trace: ByteArray): List<MotionEvent> {
+        val activity = Robolectric.buildActivity(Activity::class.java).setup().get()
+        val view = CapturingView(activity)
+        activity.setContentView(view)
+        shadowOf(Looper.getMainLooper()).idle()
+
+        MotionTracePlayer(view, trace).start()
+        shadowOf(Looper.getMainLooper()).idleFor(Duration.ofMillis(REPLAY_MILLIS))
+        return view.events
+    }
+
+    private fun obtainEvent(action: Int, elapsedMillis: Long, vararg pointers: Pointer): MotionEvent {
+        val properties = Array(pointers.size) { index ->
+            MotionEvent.PointerProperties().apply {
+                id = pointers[index].id
+                toolType = MotionEvent.TOOL_TYPE_FINGER
+            }
+        }
+        val coords = Array(pointers.size) { index ->
+            MotionEvent.PointerCoords().apply {
+                x = pointers[index].x
+                y = pointers[index].y
+                pressure = PRESSURE
+                size = 1f
+            }
+        }
+        return MotionEvent.obtain(
+            DOWN_TIME, DOWN_TIME + elapsedMillis, action, pointers.size, properties, coords,
+            KeyEvent.META_SHIFT_ON, 0, 1f, 1f, 0, 0, InputDevice.SOURCE_TOUCHSCREEN, 0
+        )
+    }
+
+    private fun pointerAction(action: Int, pointerIndex: Int): Int =
+        action or (pointerIndex shl MotionEvent.ACTION_POINTER_INDEX_SHIFT)
+
+    private data class Pointer(val id: Int, val x: Float, val y: Float) {
+        fun movedBy(dy: Float): Pointer = copy(y = y + dy)
+    }
+
+    private class CapturingView(context: Context) : View(context) {
+        val events = ArrayList<MotionEvent>()
+
+        override fun dispatchTouchEvent(event: MotionEvent): Boolean {
+            events.add(MotionEvent.obtain(event))
+            return true
+        }
+    }
+
+    private companion object {
+        const val CAPACITY = 64
+        const val OVERWRITTEN_RECORDS = 6
+        const val DOWN_TIME = 1000L
+        const val PRESSURE = 0.5f
+        const val REPLAY_MILLIS = 1000L
+    }
+}
@@ -0,0 +1,172 @@
+package com.telefonica.nestedscrollwebview.helper
+
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertTrue
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.robolectric.RobolectricTestRunner
+import org.robolectric.shadows.ShadowSystemClock
+import java.time.Duration
+
+@RunWith(RobolectricTestRunner::class)
+class ScrollGestureMetricsTrackerTest {
+
+    /** Metrics instances are reused, so reported values are copied. */
+    private val reports = ArrayList<ScrollGestureMetricsSnapshot>()
+    private val tracker = ScrollGestureMetricsTracker { metrics ->
+        reports.add(ScrollGestureMetricsSnapshot(metrics))
+    }
+
+    @Test
+    fun `gesture without fling is reported once it ends`() {
+        tracker.onTouchGestureStarted()
+        tracker.onNestedDispatch()
+        tracker.onNestedDispatch()
+        tracker.onScrollStep(delta = 30, parentConsumed = 20, selfConsumed = 10)
+        tracker.onScrollStep(delta = -15, parentConsumed = 0, selfConsumed = -15)
+        assertTrue(reports.isEmpty())
+
+        tracker.onTouchGestureEnded()
+
+        with(reports.single()) {
+            assertEquals(45, totalDistance)
+            assertEquals(20, parentConsumedDistance)
+            assertEquals(25, selfConsumedDistance)
+            assertEquals(2, nestedDispatchCount)
+            assertEquals(0L, flingDurationMillis)
+            assertEquals(0, flingFrameCount)
+            assertEquals(0, missedFrameCount)
+        }
+    }
+
+    @Test
+    fun `gesture ending in a fling is reported once the fling ends`() {
+        tracker.onTouchGestureStarted()
+        tracker.onScrollStep(delta = 30, parentConsumed = 0, selfConsumed = 30)
+        tracker.onFlingStarted(REFRESH_RATE_60)
+        tracker.onTouchGestureEnded()
+        assertTrue(reports.isEmpty())
+
+        advanceFrame(FRAME_60_MILLIS)
+        tracker.onFlingFrame()
+        tracker.onScrollStep(delta = 20, parentConsumed = 0, selfConsumed = 20)
+        advanceFrame(FRAME_60_MILLIS)
+        tracker.onFlingEnded()
+
+        with(reports.single()) {
+            assertEquals(50, totalDistance)
+            assertEquals(1, flingFrameCount)
+            assertEquals(2 * FRAME_60_MILLIS, flingDurationMillis)
+        }
+    }
+
+    @Test
+    fun `fling frames on time are not missed`() {
+        tracker.onFlingStarted(REFRESH_RATE_60)
+        repeat(10) {
+            advanceFrame(FRAME_60_MILLIS)
+            tracker.onFlingFrame()
+        }
+        tracker.onFlingEnded()
+
+        with(reports.single()) {
+            assertEquals(10, flingFrameCount)
+            assertEquals(0, missedFrameCount)
+        }
+    }
+
+    @Test
+    fun `fling frames late by whole frames count them as missed`() {
+        tracker.onFlingStarted(REFRESH_RATE_60)
+        advanceFrame(FRAME_60_MILLIS)
+        tracker.onFlingFrame()
+        // Three frame intervals elapsed, so two frames were missed.
+        advanceFrame(3 * FRAME_60_MILLIS)
+        tracker.onFlingFrame()
+        tracker.onFlingEnded()
+
+        with(reports.single()) {
+            assertEquals(2, flingFrameCount)
+            assertEquals(2, missedFrameCount)
+        }
+    }
+
+    @Test
+    fun `missed frames follow display refresh rate`() {
+        tracker.onFlingStarted(REFRESH_RATE_120)
+        // 25 ms are three 120 Hz frame intervals.
+        advanceFrame(25L)
+        tracker.onFlingFrame()
+        tracker.onFlingEnded()
+
+        assertEquals(2, reports.single().missedFrameCount)
+    }
+
+    @Test
+    fun `unknown refresh rate falls back to 60 Hz`() {
+        tracker.onFlingStarted(0f)
+        advanceFrame(2 * FRAME_60_MILLIS)
+        tracker.onFlingFrame()
+        tracker.onFlingEnded()
+
+        assertEquals(1, reports.single().missedFrameCount)
+    }
+
+    @Test
+    fun `fling frames outside of a fling are ignored`() {
+        tracker.onTouchGestureStarted()
+        tracker.onFlingFrame()
+        tracker.onFlingEnded()
+        tracker.onTouchGestureEnded()
+
+        assertEquals(0, reports.single().flingFrameCount)
+    }
+
+    @Test
+    fun `metrics are reset between gestures`() {
+        tracker.onTouchGestureStarted()
+        tracker.onNestedDispatch()
+        tracker.onScrollStep(delta = 30, parentConsumed = 30, selfConsumed = 0)
+        tracker.onTouchGestureEnded()
+
+        tracker.onTouchGestureStarted()
+        tracker.onTouchGestureEnded()
+
+        assertEquals(2, reports.size)
+        with(reports.last()) {
+            assertEquals(0, totalDistance)
+            assertEquals(0, nestedDispatchCount)
+        }
+    }
+
+    @Test
+    fun `steps after a report are not tracked`() {
+        tracker.onTouchGestureStarted()
+        tracker.onTouchGestureEnded()
+        tracker.onNestedDispatch()
+        tracker.onScrollStep(delta = 30, parentConsumed = 30, selfConsumed = 0)
+        tracker.onTouchGestureEnded()
+
+        assertEquals(1, reports.size)
+    }
+
+    private fun advanceFrame(millis: Long) {
+        ShadowSystemClock.advanceBy(Duration.ofMillis(millis))
+    }
+
+    private class ScrollGestureMetricsSnapshot(metrics: ScrollGestureMetrics) {
+        val totalDistance = metrics.totalDistance
+        val parentConsumedDistance = metrics.parentConsumedDistance
+        val selfConsumedDistance = metrics.selfConsumedDistance
+        val nestedDispatchCount = metrics.nestedDispatchCount
+        val flingDurationMillis = metrics.flingDurationMillis
+        val flingFrameCount = metrics.flingFrameCount
+        val missedFrameCount = metrics.missedFrameCount
+    }
+
+    private companion object {
+        const val REFRESH_RATE_60 = 60f
+        const val REFRESH_RATE_120 = 120f
+        const val FRAME_60_MILLIS = 17L
+    }
+}
@@ -0,0 +1,139 @@
+package com.telefonica.nestedscrollwebview.helper
+
+import androidx.core.view.ViewCompat
+import org.junit.Assert.assertEquals
+import org.junit.Test
+import kotlin.random.Random
+
+class ScrollableRegionIndexTest {
+
+    @Test
+    fun `empty index has no scrollable axes`() {
+        val index = ScrollableRegionIndex.build(1f, emptyList())
+
+        assertEquals(0, index.size)
+        assertEquals(NONE, index.getScrollableAxesAt(0f, 0f))
+    }
+
+    @Test
+    fun `point inside region returns its axes`() {
+        val index = ScrollableRegionIndex.build(1f, listOf(region(10f, 20f, 110f, 220f, VERTICAL)))
+
+        assertEquals(VERTICAL, index.getScrollableAxesAt(50f, 100f))
+    }
+
+    @Test
+    fun `point outside region has no scrollable axes`() {
+        val index = ScrollableRegionIndex.build(1f, listOf(region(10f, 20f, 110f, 220f, VERTICAL)))
+
+        assertEquals(NONE, index.getScrollableAxesAt(5f, 100f))
+        assertEquals(NONE, index.getScrollableAxesAt(50f, 10f))
+        assertEquals(NONE, index.getScrollableAxesAt(150f, 100f))
+        assertEquals(NONE, index.getScrollableAxesAt(50f, 300f))
+    }
+
+    @Test
+    fun `region top and left edges are included`() {
+        val index = ScrollableRegionIndex.build(1f, listOf(region(10f, 20f, 110f, 220f, VERTICAL)))
+
+        assertEquals(VERTICAL, index.getScrollableAxesAt(10f, 20f))
+    }
+
+    @Test
+    fun `region bottom and right edges are excluded`() {
+        val index = ScrollableRegionIndex.build(1f, listOf(region(10f, 20f, 110f, 220f, VERTICAL)))
+
+        assertEquals(NONE, index.getScrollableAxesAt(50f, 220f))
+        assertEquals(NONE, index.getScrollableAxesAt(110f, 100f))
+        assertEquals(VERTICAL, index.getScrollableAxesAt(109.9f, 219.9f))
+    }
+
+    @Test
+    fun `overlapping regions return combined axes only where they overlap`() {
+        val index = ScrollableRegionIndex.build(
+            1f,
+            listOf(
+                region(0f, 0f, 100f, 100f, VERTICAL),
+                region(50f, 50f, 150f, 150f, HORIZONTAL),
+            ),
+        )
+
+        assertEquals(VERTICAL, index.getScrollableAxesAt(25f, 25f))
+        assertEquals(VERTICAL or HORIZONTAL, index.getScrollableAxesAt(75f, 75f))
+        assertEquals(HORIZONTAL, index.getScrollableAxesAt(125f, 125f))
+    }
+
+    @Test
+    fun `nested region returns its axes along with its container ones`() {
+        val index = ScrollableRegionIndex.build(
+            1f,
+            listOf(
+                region(0f, 0f, 1000f, 1000f, VERTICAL),
+                region(100f, 100f, 200f, 200f, HORIZONTAL),
+            ),
+        )
+
+        assertEquals(VERTICAL or HORIZONTAL, index.getScrollableAxesAt(150f, 150f))
+        assertEquals(VERTICAL, index.getScrollableAxesAt(500f, 500f))
+    }
+
+    @Test
+    fun `tall region starting first is found below shorter regions`() {
+        val index = ScrollableRegionIndex.build(
+            1f,
+            listOf(region(0f, 0f, 10f, 10_000f, VERTICAL)) +
+                (1..20).map { region(20f, it * 100f, 30f, it * 100f + 10f, HORIZONTAL) },
+        )
+
+        assertEquals(VERTICAL, index.getScrollableAxesAt(5f, 9_999f))
+        assertEquals(NONE, index.getScrollableAxesAt(5f, 10_000f))
+    }
+
+    @Test
+    fun `point queries match a linear scan on random regions`() {
+        val random = Random(RANDOM_SEED)
+        val regions = List(REGION_COUNT) {
+            val left = random.nextInt(0, DOCUMENT_SIZE).toFloat()
+            val top = random.nextInt(0, DOCUMENT_SIZE).toFloat()
+            region(
+                left,
+                top,
+                left + random.nextInt(1, MAX_REGION_SIZE),
+                top + random.nextInt(1, MAX_REGION_SIZE),
+                random.nextInt(1, (VERTICAL or HORIZONTAL) + 1),
+            )
+        }
+        val index = ScrollableRegionIndex.build(1f, regions)
+
+        repeat(QUERY_COUNT) {
+            val x = random.nextInt(0, DOCUMENT_SIZE + MAX_REGION_SIZE).toFloat()
+            val y = random.nextInt(0, DOCUMENT_SIZE + MAX_REGION_SIZE).toFloat()
+            assertEquals("Axes at ($x, $y)", scanAxes(regions, x, y), index.getScrollableAxesAt(x, y))
+        }
+    }
+
+    @Test
+    fun `pixel ratio is kept`() {
+        val index = ScrollableRegionIndex.build(2.5f, emptyList())
+
+        assertEquals(2.5f, index.pixelRatio, 0f)
+    }
+
+    private fun region(left: Float, top: Float, right: Float, bottom: Float, axes: Int): FloatArray =
+        floatArrayOf(left, top, right, bottom, axes.toFloat())
+
+    private fun scanAxes(regions: List<FloatArray>, x: Float, y: Float): Int =
+        regions.filter { x >= it[0] && y >= it[1] && x < it[2] && y < it[3] }
+            .fold(NONE) { axes, region -> axes or region[4].toInt() }
+
+    private companion object {
+        const val NONE = ViewCompat.SCROLL_AXIS_NONE
+        const val HORIZONTAL = ViewCompat.SCROLL_AXIS_HORIZONTAL
+        const val VERTICAL = ViewCompat.SCROLL_AXIS_VERTICAL
+        const val RANDOM_SEED = 42
+        const val REGION_COUNT = 200
+        const val QUERY_COUNT = 2000
+        const val DOCUMENT_SIZE = 2000
+        const val MAX_REGION_SIZE = 500
+    }
+}